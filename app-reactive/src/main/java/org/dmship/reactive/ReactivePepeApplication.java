@@ -0,0 +1,25 @@
+package org.dmship.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dmship.util.JsonUtil;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Non-blocking read API (GET endpoints of persons and pets) on WebFlux and R2DBC, sharing db schema
+ * and DTOs with the blocking app, which serves writes.
+ */
+@SpringBootApplication
+public class ReactivePepeApplication {
+
+    // same json format (e.g. dates) as the blocking app
+    @Bean
+    public ObjectMapper defaultMapper() {
+        return JsonUtil.configure(new ObjectMapper());
+    }
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactivePepeApplication.class, args);
+    }
+}
@@ -0,0 +1,34 @@
+package org.dmship.reactive.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+
+/**
+ * Read-only api: GET requests are permitted to everyone (as in the blocking app), any other request is denied.
+ */
+@Configuration
+@EnableWebFluxSecurity
+public class SecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http.csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .authorizeExchange(authorizeExchangeCustomizer ->
+                        authorizeExchangeCustomizer
+                                .pathMatchers(HttpMethod.GET, "/**").permitAll()
+                                .anyExchange().denyAll())
+                // there is no authentication, so denied (anonymous) requests are forbidden rather than unauthorized
+                .exceptionHandling(exceptionHandlingCustomizer ->
+                        exceptionHandlingCustomizer.authenticationEntryPoint(
+                                new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package org.dmship.reactive.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.dmship.dto.PetsDTO;
+import org.dmship.reactive.services.PetReadService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping(path = "/pepe/v1", produces = MediaType.APPLICATION_JSON_VALUE)
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class PersonPetReadController {
+
+    private final PetReadService petReadService;
+
+    @Tag(name = "Retrieve All Person's Pets", description = "Person Pets")
+    @Operation(description = "Retrieve all person's pets")
+    @GetMapping(value="/persons/{personId}/pets")
+    public Mono<PetsDTO> retrieveAllPersonPets(@PathVariable("personId") Long personId) {
+        return this.petReadService.retrieveAllPersonPets(personId);
+    }
+}
@@ -0,0 +1,77 @@
+package org.dmship.reactive.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PersonsPageDTO;
+import org.dmship.reactive.services.PersonReadService;
+import org.dmship.util.CursorUtil;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping(path = "/pepe/v1", produces = MediaType.APPLICATION_JSON_VALUE)
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+@Validated
+public class PersonReadController {
+
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final String INCLUDE_PETS = "pets";
+
+    private final PersonReadService personReadService;
+
+    @Tag(name = "Retrieve Person by Id", description = "Persons")
+    @Operation(description = "Retrieve the person using person id obtained when the person was created")
+    @GetMapping(value="/persons/{personId}")
+    public Mono<PersonDTO> retrievePerson(@PathVariable("personId") Long personId) {
+        return this.personReadService.retrievePerson(personId);
+    }
+
+    @Tag(name = "Retrieve Persons", description = "Persons")
+    @Operation(description = "Retrieve persons whose first name and/or last name match the optional request params, " +
+            "in pages ordered by person id, same as the blocking app: page size is set by 'limit' request param " +
+            "(default " + DEFAULT_PAGE_LIMIT + ", max " + MAX_PAGE_LIMIT + "), 'next' cursor of the response " +
+            "should be supplied as 'cursor' request param to retrieve the next page. If 'include' request param " +
+            "is set to '" + INCLUDE_PETS + "', each person contains ids of its pets ('petIds').")
+    @GetMapping(value="/persons")
+    public Mono<PersonsPageDTO> retrievePersons(
+            @RequestParam(required = false)
+            Optional<String> firstName,
+            @RequestParam(required = false)
+            Optional<String> lastName,
+            @RequestParam(required = false)
+            Optional<String> cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_LIMIT)
+            @Min(1) @Max(MAX_PAGE_LIMIT)
+            Integer limit,
+            @RequestParam(required = false)
+            @Pattern(regexp = INCLUDE_PETS)
+            String include) {
+        return this.personReadService.retrievePersonsPage(firstName, lastName, cursor.map(CursorUtil::decode),
+                limit, INCLUDE_PETS.equals(include));
+    }
+
+    @Tag(name = "Stream Persons", description = "Persons")
+    @Operation(description = "Stream all persons whose first name and/or last name match the optional request params " +
+            "as newline delimited JSON (one person per line), ordered by person id. Persons are read from db " +
+            "only as fast as the client consumes them.")
+    @GetMapping(value="/persons", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PersonDTO> streamPersons(
+            @RequestParam(required = false)
+            Optional<String> firstName,
+            @RequestParam(required = false)
+            Optional<String> lastName) {
+        return this.personReadService.streamPersons(firstName, lastName);
+    }
+}
@@ -0,0 +1,43 @@
+package org.dmship.reactive.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.dmship.dto.PetDTO;
+import org.dmship.reactive.services.PetReadService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping(path = "/pepe/v1", produces = MediaType.APPLICATION_JSON_VALUE)
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class PetReadController {
+
+    private final PetReadService petReadService;
+
+    @Tag(name = "Retrieve Pet by Id", description = "Pets")
+    @Operation(description = "Retrieve the pet data using pet id obtained when the pet was created")
+    @GetMapping(value="/pets/{petId}")
+    public Mono<PetDTO> retrievePet(@PathVariable("petId") Long petId) {
+        return this.petReadService.retrievePet(petId);
+    }
+
+    @Tag(name = "Retrieve All Pets", description = "Pets")
+    @Operation(description = "Retrieve all pets as JSON array, ordered by pet id. The array is written " +
+            "as pets are read from db, without collecting them first.")
+    @GetMapping(value="/pets")
+    public Flux<PetDTO> retrievePets() {
+        return this.petReadService.streamAllPets();
+    }
+
+    @Tag(name = "Stream All Pets", description = "Pets")
+    @Operation(description = "Stream all pets as newline delimited JSON (one pet per line), ordered by pet id. " +
+            "Pets are read from db only as fast as the client consumes them.")
+    @GetMapping(value="/pets", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PetDTO> streamPets() {
+        return this.petReadService.streamAllPets();
+    }
+}
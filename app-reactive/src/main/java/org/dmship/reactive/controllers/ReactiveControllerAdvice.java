@@ -0,0 +1,48 @@
+package org.dmship.reactive.controllers;
+
+import jakarta.validation.ConstraintViolationException;
+import org.dmship.exceptions.ResourceBadRequestException;
+import org.dmship.exceptions.ResourceConflictException;
+import org.dmship.exceptions.ResourceInternalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Same error responses (status and plain message) as the blocking app.
+ */
+@ControllerAdvice
+public class ReactiveControllerAdvice {
+
+    private static Logger logger = LoggerFactory.getLogger(ReactiveControllerAdvice.class);
+
+    @ExceptionHandler(ResourceConflictException.class)
+    public ResponseEntity<String> handleResourceConflictException(ResourceConflictException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ResourceBadRequestException.class)
+    public ResponseEntity<String> handleResourceBadRequestException(ResourceBadRequestException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ResourceInternalException.class)
+    public ResponseEntity<String> handleResourceInternalException(ResourceInternalException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<String> handleConstraintViolationException(ConstraintViolationException e) {
+        StringBuilder builder = new StringBuilder();
+        e.getConstraintViolations().forEach(violation ->
+                builder.append("param: ").append(violation.getPropertyPath())
+                        .append(", value: '").append(violation.getInvalidValue())
+                        .append("', error: ").append(violation.getMessage()).append('\n'));
+
+        logger.info("ConstraintViolation caught, return bad request with body:\n{}", builder);
+        return new ResponseEntity<>(builder.toString(), HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,82 @@
+package org.dmship.reactive.repository;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.dmship.dto.PersonDTO;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads persons straight into DTOs (no entities). Rows are emitted as they are read from db,
+ * only as fast as the subscriber requests them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PersonReadRepository {
+
+    private static final String SELECT_PERSON = "SELECT id, first_name, last_name, date_of_birth, address FROM person";
+
+    private final DatabaseClient databaseClient;
+
+    /** Person together with its id, which is not part of {@link PersonDTO}. */
+    public record PersonRow(Long id, PersonDTO person) {
+    }
+
+    public Mono<PersonDTO> findById(Long personId) {
+        return databaseClient.sql(SELECT_PERSON + " WHERE id = :id")
+                .bind("id", personId)
+                .map(PersonReadRepository::toPersonRow)
+                .one()
+                .map(PersonRow::person);
+    }
+
+    /**
+     * Persons matching the given names (if present), with id greater than afterId (if present), ordered by id.
+     */
+    public Flux<PersonRow> find(Optional<String> firstName, Optional<String> lastName, Optional<Long> afterId,
+                                Optional<Integer> limit) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> params = new LinkedHashMap<>();
+
+        firstName.ifPresent(firstNameVal -> {
+            conditions.add("first_name = :firstName");
+            params.put("firstName", firstNameVal);
+        });
+        lastName.ifPresent(lastNameVal -> {
+            conditions.add("last_name = :lastName");
+            params.put("lastName", lastNameVal);
+        });
+        afterId.ifPresent(afterIdVal -> {
+            conditions.add("id > :afterId");
+            params.put("afterId", afterIdVal);
+        });
+        limit.ifPresent(limitVal -> params.put("limit", limitVal));
+
+        String sql = SELECT_PERSON
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY id"
+                + (limit.isPresent() ? " LIMIT :limit" : "");
+
+        return databaseClient.sql(sql)
+                .bindValues(params)
+                .map(PersonReadRepository::toPersonRow)
+                .all();
+    }
+
+    private static PersonRow toPersonRow(Readable row) {
+        return new PersonRow(row.get("id", Long.class), new PersonDTO(
+                row.get("first_name", String.class),
+                row.get("last_name", String.class),
+                row.get("date_of_birth", LocalDate.class),
+                row.get("address", String.class)));
+    }
+}
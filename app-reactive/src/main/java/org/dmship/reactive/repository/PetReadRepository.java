@@ -0,0 +1,60 @@
+package org.dmship.reactive.repository;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.dmship.dto.PetDTO;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Reads pets and person's pet ids straight into DTOs (no entities). Rows are emitted as they are read from db,
+ * only as fast as the subscriber requests them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PetReadRepository {
+
+    private static final String SELECT_PET = "SELECT id, name, age FROM pet";
+
+    private final DatabaseClient databaseClient;
+
+    /** Link of a pet to its owner. */
+    public record PetOwner(Long petId, Long personId) {
+    }
+
+    public Mono<PetDTO> findById(Long petId) {
+        return databaseClient.sql(SELECT_PET + " WHERE id = :id")
+                .bind("id", petId)
+                .map(PetReadRepository::toPetDTO)
+                .one();
+    }
+
+    public Flux<PetDTO> findAll() {
+        return databaseClient.sql(SELECT_PET + " ORDER BY id")
+                .map(PetReadRepository::toPetDTO)
+                .all();
+    }
+
+    public Flux<Long> findPetIdsByPersonId(Long personId) {
+        return databaseClient.sql("SELECT pet_id FROM person_pet WHERE person_id = :personId ORDER BY pet_id")
+                .bind("personId", personId)
+                .map(row -> row.get("pet_id", Long.class))
+                .all();
+    }
+
+    public Flux<PetOwner> findOwnersByPersonIdIn(Collection<Long> personIds) {
+        return databaseClient.sql("SELECT pet_id, person_id FROM person_pet WHERE person_id IN (:personIds)" +
+                        " ORDER BY pet_id")
+                .bind("personIds", personIds)
+                .map(row -> new PetOwner(row.get("pet_id", Long.class), row.get("person_id", Long.class)))
+                .all();
+    }
+
+    private static PetDTO toPetDTO(Readable row) {
+        return new PetDTO(row.get("name", String.class), row.get("age", Integer.class));
+    }
+}
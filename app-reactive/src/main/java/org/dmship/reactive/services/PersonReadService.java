@@ -0,0 +1,114 @@
+package org.dmship.reactive.services;
+
+import lombok.RequiredArgsConstructor;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PersonsPageDTO;
+import org.dmship.exceptions.ResourceConflictException;
+import org.dmship.exceptions.ResourceInternalException;
+import org.dmship.reactive.repository.PersonReadRepository;
+import org.dmship.reactive.repository.PersonReadRepository.PersonRow;
+import org.dmship.reactive.repository.PetReadRepository;
+import org.dmship.util.CursorUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class PersonReadService {
+
+    private static Logger logger = LoggerFactory.getLogger(PersonReadService.class);
+
+    private final PersonReadRepository personReadRepository;
+
+    private final PetReadRepository petReadRepository;
+
+    @Value("${pepe.batch.size:500}")
+    private int batchSize;
+
+    public Mono<PersonDTO> retrievePerson(Long personId) {
+        return personReadRepository.findById(personId)
+                .switchIfEmpty(Mono.error(() -> new ResourceConflictException(
+                        "Person with id '" + personId + "' not found")))
+                .onErrorMap(e -> !(e instanceof ResourceConflictException), e -> {
+                    logger.error("General exception when trying to retrieve person with id '{}'" +
+                            "\nexception:{}", personId, e.getMessage());
+
+                    return new ResourceInternalException("Could not retrieve person with id '"
+                            + personId + "', unexpected error");
+                });
+    }
+
+    /**
+     * Retrieves a single page of persons matching the given names, using keyset pagination on person id
+     * (same as the blocking app). One extra row is fetched to find out whether there is a next page.
+     *
+     * @param includePets if true, ids of the pets of the persons on the page are added to the person DTOs,
+     *                    using one additional query per 'pepe.batch.size' persons
+     */
+    public Mono<PersonsPageDTO> retrievePersonsPage(Optional<String> firstName, Optional<String> lastName,
+                                                    Optional<Long> afterId, int limit, boolean includePets) {
+        return personReadRepository.find(firstName, lastName, afterId, Optional.of(limit + 1))
+                .collectList()
+                .flatMap(persons -> {
+                    String next = null;
+                    if (persons.size() > limit) {
+                        persons = persons.subList(0, limit);
+                        next = CursorUtil.encode(persons.get(persons.size() - 1).id());
+                    }
+
+                    String nextCursor = next;
+                    List<PersonRow> pagePersons = persons;
+
+                    Mono<Map<Long, List<Long>>> petIdsByPersonId = includePets ?
+                            findPetIdsByPersonId(pagePersons) : Mono.just(Map.of());
+
+                    return petIdsByPersonId.map(petIds -> new PersonsPageDTO(pagePersons.stream()
+                            .map(person -> includePets ?
+                                    person.person().toBuilder()
+                                            .petIds(petIds.getOrDefault(person.id(), List.of()))
+                                            .build() :
+                                    person.person())
+                            .toList(), nextCursor));
+                })
+                .onErrorMap(e -> {
+                    logger.error("General exception when trying to retrieve persons with first name '{}', " +
+                            "last name '{}'\nexception:{}", firstName, lastName, e.getMessage());
+
+                    return new ResourceInternalException("Could not retrieve persons, unexpected error");
+                });
+    }
+
+    /**
+     * All persons matching the given names, ordered by id, read from db as the client consumes them.
+     */
+    public Flux<PersonDTO> streamPersons(Optional<String> firstName, Optional<String> lastName) {
+        return personReadRepository.find(firstName, lastName, Optional.empty(), Optional.empty())
+                .map(PersonRow::person)
+                .onErrorMap(e -> {
+                    logger.error("General exception when trying to stream persons" +
+                            "\nexception:{}", e.getMessage());
+
+                    return new ResourceInternalException("Could not stream persons, unexpected error");
+                });
+    }
+
+    private Mono<Map<Long, List<Long>>> findPetIdsByPersonId(List<PersonRow> persons) {
+        return Flux.fromIterable(persons)
+                .map(PersonRow::id)
+                .buffer(batchSize)
+                .concatMap(petReadRepository::findOwnersByPersonIdIn)
+                .collect(HashMap::new, (petIdsByPersonId, petOwner) -> petIdsByPersonId
+                        .computeIfAbsent(petOwner.personId(), personId -> new ArrayList<>())
+                        .add(petOwner.petId()));
+    }
+}
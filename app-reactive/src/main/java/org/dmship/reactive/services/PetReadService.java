@@ -0,0 +1,60 @@
+package org.dmship.reactive.services;
+
+import lombok.RequiredArgsConstructor;
+import org.dmship.dto.PetDTO;
+import org.dmship.dto.PetsDTO;
+import org.dmship.exceptions.ResourceConflictException;
+import org.dmship.exceptions.ResourceInternalException;
+import org.dmship.reactive.repository.PetReadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+public class PetReadService {
+
+    private static Logger logger = LoggerFactory.getLogger(PetReadService.class);
+
+    private final PetReadRepository petReadRepository;
+
+    public Mono<PetDTO> retrievePet(Long petId) {
+        return petReadRepository.findById(petId)
+                .switchIfEmpty(Mono.error(() -> new ResourceConflictException(
+                        "Pet with id '" + petId + "' not found")))
+                .onErrorMap(e -> !(e instanceof ResourceConflictException), e -> {
+                    logger.error("General exception when trying to retrieve pet with id '{}'" +
+                            "\nexception:{}", petId, e.getMessage());
+
+                    return new ResourceInternalException("Could not retrieve pet with id '"
+                            + petId + "', unexpected error");
+                });
+    }
+
+    /**
+     * All pets, ordered by id, read from db as the client consumes them.
+     */
+    public Flux<PetDTO> streamAllPets() {
+        return petReadRepository.findAll()
+                .onErrorMap(e -> {
+                    logger.error("General exception when trying to stream all pets" +
+                            "\nexception:{}", e.getMessage());
+
+                    return new ResourceInternalException("Could not stream pets, unexpected error");
+                });
+    }
+
+    public Mono<PetsDTO> retrieveAllPersonPets(Long personId) {
+        return petReadRepository.findPetIdsByPersonId(personId)
+                .collectList()
+                .map(petIds -> new PetsDTO(petIds.stream().mapToLong(Long::longValue).toArray()))
+                .onErrorMap(e -> {
+                    logger.error("General exception when trying to retrieve all pets for personId '{}'" +
+                            "\nexception:{}", personId, e.getMessage());
+
+                    return new ResourceInternalException("Could not retrieve pets, unexpected error");
+                });
+    }
+}
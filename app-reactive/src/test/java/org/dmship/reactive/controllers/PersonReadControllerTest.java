@@ -0,0 +1,145 @@
+package org.dmship.reactive.controllers;
+
+import com.jayway.jsonpath.JsonPath;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.reactive.ReactivePepeApplication;
+import org.dmship.reactive.util.DbResetService;
+import org.dmship.reactive.util.TestDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = ReactivePepeApplication.class)
+class PersonReadControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    private TestDataService testDataService;
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("Retrieve single stored person by its Id, in the same json format as the blocking app")
+    public void givenPerson_whenRetrievingPerson_thenPersonReturned() {
+        //Given (preconditions)
+        Long personId = testDataService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+
+        //When (actions)
+        //Then (postconditions)
+        webTestClient.get().uri("/pepe/v1/persons/{personId}", personId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"firstName\":\"Jan\",\"lastName\":\"Jansen\"," +
+                        "\"dateOfBirth\":[1980,6,18],\"address\":\"Kalverhoeve 41, 3992 NX Houten\"}", true);
+    }
+
+    @Test
+    @DisplayName("Retrieving not existing person returns conflict")
+    public void givenNoPerson_whenRetrievingPerson_thenConflict() {
+        //Given (preconditions)
+        //When (actions)
+        //Then (postconditions)
+        webTestClient.get().uri("/pepe/v1/persons/{personId}", 1)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(String.class).isEqualTo("Person with id '1' not found");
+    }
+
+    @Test
+    @DisplayName("Retrieve persons in pages, following 'next' cursor, with ids of their pets")
+    public void givenPersons_whenRetrievingPersonsPages_thenAllPersonsReturned() {
+        //Given (preconditions)
+        Long janId = testDataService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18), "Houten"));
+        testDataService.createPerson(new PersonDTO("Piet", "Jansen", LocalDate.of(1986, 3, 12), "Utrecht"));
+        testDataService.createPerson(new PersonDTO("Jan", "Pietersen", LocalDate.of(1990, 1, 2), "Zeist"));
+        Long petId = testDataService.createPet(new PetDTO("Caesar", 3));
+        testDataService.addPersonPet(janId, petId);
+
+        //When (actions)
+        String firstPage = webTestClient.get().uri("/pepe/v1/persons?lastName=Jansen&limit=1&include=pets")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        String next = JsonPath.read(firstPage, "$.next");
+
+        //Then (postconditions)
+        assertEquals(JsonPath.read(firstPage, "$.persons[0].firstName"), "Jan");
+        assertEquals(JsonPath.<Integer>read(firstPage, "$.persons[0].petIds[0]"), petId.intValue());
+
+        webTestClient.get().uri("/pepe/v1/persons?lastName=Jansen&limit=1&cursor={cursor}", next)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.persons.length()").isEqualTo(1)
+                .jsonPath("$.persons[0].firstName").isEqualTo("Piet")
+                .jsonPath("$.persons[0].petIds").doesNotExist()
+                .jsonPath("$.next").doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Retrieving persons with page limit over max returns bad request")
+    public void givenLimitOverMax_whenRetrievingPersons_thenBadRequest() {
+        //Given (preconditions)
+        //When (actions)
+        //Then (postconditions)
+        webTestClient.get().uri("/pepe/v1/persons?limit=1001")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).value(containsString("limit"));
+    }
+
+    @Test
+    @DisplayName("Stream persons as newline delimited json")
+    public void givenPersons_whenStreamingPersons_thenAllPersonsStreamed() {
+        //Given (preconditions)
+        testDataService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18), "Houten"));
+        testDataService.createPerson(new PersonDTO("Piet", "Jansen", LocalDate.of(1986, 3, 12), "Utrecht"));
+
+        //When (actions)
+        //Then (postconditions)
+        webTestClient.get().uri("/pepe/v1/persons")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(PersonDTO.class)
+                .value(persons -> assertEquals(persons.stream().map(PersonDTO::firstName).toList(),
+                        List.of("Jan", "Piet")));
+    }
+
+    @Test
+    @DisplayName("Write requests are denied, the reactive app serves reads only")
+    public void givenPerson_whenCreatingPerson_thenForbidden() {
+        //Given (preconditions)
+        //When (actions)
+        //Then (postconditions)
+        webTestClient.post().uri("/pepe/v1/persons")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18), "Houten"))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+}
@@ -0,0 +1,117 @@
+package org.dmship.reactive.controllers;
+
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.reactive.ReactivePepeApplication;
+import org.dmship.reactive.util.DbResetService;
+import org.dmship.reactive.util.TestDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = ReactivePepeApplication.class)
+class PetReadControllerTest {
+
+    private static final int PET_COUNT = 200;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    private TestDataService testDataService;
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("Retrieve single stored pet by its Id")
+    public void givenPet_whenRetrievingPet_thenPetReturned() {
+        //Given (preconditions)
+        Long petId = testDataService.createPet(new PetDTO("Caesar", 3));
+
+        //When (actions)
+        //Then (postconditions)
+        webTestClient.get().uri("/pepe/v1/pets/{petId}", petId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PetDTO.class).isEqualTo(new PetDTO("Caesar", 3));
+    }
+
+    @Test
+    @DisplayName("Retrieve all pets as json array, ordered by pet id")
+    public void givenPets_whenRetrievingPets_thenAllPetsReturned() {
+        //Given (preconditions)
+        testDataService.createPet(new PetDTO("Caesar", 3));
+        testDataService.createPet(new PetDTO("Brutus", 5));
+
+        //When (actions)
+        //Then (postconditions)
+        webTestClient.get().uri("/pepe/v1/pets")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(PetDTO.class).isEqualTo(List.of(new PetDTO("Caesar", 3), new PetDTO("Brutus", 5)));
+    }
+
+    @Test
+    @DisplayName("Stream pets as newline delimited json, as fast as the client requests them")
+    public void givenManyPets_whenStreamingPets_thenPetsStreamedOnDemand() {
+        //Given (preconditions)
+        IntStream.range(0, PET_COUNT).forEach(i -> testDataService.createPet(new PetDTO("Pet" + i, 1 + i % 20)));
+
+        //When (actions)
+        Flux<PetDTO> pets = webTestClient.get().uri("/pepe/v1/pets")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(PetDTO.class)
+                .getResponseBody();
+
+        //Then (postconditions)
+        StepVerifier.create(pets, 0)
+                .thenRequest(1)
+                .expectNext(new PetDTO("Pet0", 1))
+                .thenRequest(PET_COUNT - 1)
+                .expectNextCount(PET_COUNT - 1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Retrieve ids of all person's pets")
+    public void givenPersonWithPets_whenRetrievingPersonPets_thenPetIdsReturned() {
+        //Given (preconditions)
+        Long personId = testDataService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Houten"));
+        Long caesarId = testDataService.createPet(new PetDTO("Caesar", 3));
+        Long brutusId = testDataService.createPet(new PetDTO("Brutus", 5));
+        testDataService.addPersonPet(personId, caesarId);
+        testDataService.addPersonPet(personId, brutusId);
+
+        //When (actions)
+        //Then (postconditions)
+        webTestClient.get().uri("/pepe/v1/persons/{personId}/pets", personId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.petIds.length()").isEqualTo(2)
+                .jsonPath("$.petIds[0]").isEqualTo(caesarId.intValue())
+                .jsonPath("$.petIds[1]").isEqualTo(brutusId.intValue());
+    }
+}
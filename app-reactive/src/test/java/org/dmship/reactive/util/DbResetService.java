@@ -0,0 +1,27 @@
+package org.dmship.reactive.util;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@Service
+public class DbResetService {
+
+    private static final List<String> TABLE_NAMES = List.of("person_pet", "pet", "person");
+
+    private final DatabaseClient databaseClient;
+
+    public void resetDatabase() {
+        databaseClient.inConnection(connection -> Flux.concat(
+                        Flux.from(connection.createStatement("SET REFERENTIAL_INTEGRITY FALSE").execute()),
+                        Flux.fromIterable(TABLE_NAMES).concatMap(tableName ->
+                                connection.createStatement("TRUNCATE TABLE " + tableName).execute()),
+                        Flux.from(connection.createStatement("SET REFERENTIAL_INTEGRITY TRUE").execute()))
+                .then())
+                .block();
+    }
+}
@@ -0,0 +1,59 @@
+package org.dmship.reactive.util;
+
+import lombok.RequiredArgsConstructor;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inserts test data directly into db, persons and pets are created by the blocking app in production
+ * (which also allocates their ids).
+ */
+@RequiredArgsConstructor
+@Service
+public class TestDataService {
+
+    private final DatabaseClient databaseClient;
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    public Long createPerson(PersonDTO personDTO) {
+        long personId = lastId.incrementAndGet();
+
+        databaseClient.sql("INSERT INTO person (id, first_name, last_name, date_of_birth, address)" +
+                        " VALUES (:id, :firstName, :lastName, :dateOfBirth, :address)")
+                .bind("id", personId)
+                .bind("firstName", personDTO.firstName())
+                .bind("lastName", personDTO.lastName())
+                .bind("dateOfBirth", personDTO.dateOfBirth())
+                .bind("address", personDTO.address())
+                .then()
+                .block();
+
+        return personId;
+    }
+
+    public Long createPet(PetDTO petDTO) {
+        long petId = lastId.incrementAndGet();
+
+        databaseClient.sql("INSERT INTO pet (id, name, age) VALUES (:id, :name, :age)")
+                .bind("id", petId)
+                .bind("name", petDTO.name())
+                .bind("age", petDTO.age())
+                .then()
+                .block();
+
+        return petId;
+    }
+
+    public void addPersonPet(Long personId, Long petId) {
+        databaseClient.sql("INSERT INTO person_pet (pet_id, person_id) VALUES (:petId, :personId)")
+                .bind("petId", petId)
+                .bind("personId", personId)
+                .then()
+                .block();
+    }
+}
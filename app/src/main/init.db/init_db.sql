@@ -4,25 +4,46 @@ USE pepe_schema; -- mysql
 -- SET search_path TO pepe_schema; -- postgres
 
 CREATE TABLE IF NOT EXISTS person (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    id BIGINT PRIMARY KEY,
     first_name VARCHAR(100) NOT NULL,
     last_name VARCHAR(100) NOT NULL,
     date_of_birth DATE NOT NULL,
     address VARCHAR(300) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     CONSTRAINT person_pk_first_name_last_name UNIQUE (first_name, last_name)
 );
 
 CREATE TABLE IF NOT EXISTS pet   (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    id BIGINT PRIMARY KEY,
     name VARCHAR(100) NOT NULL,
-    age INT NOT NULL
+    age INT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS person_pet (
     pet_id BIGINT PRIMARY KEY NOT NULL,
     person_id BIGINT NOT NULL,
+    -- index of person's pets (pet_id is unique already), also used by the person_id foreign key
+    CONSTRAINT person_pet_idx_person_id_pet_id UNIQUE (person_id, pet_id),
     CONSTRAINT person_pet_fk_person_id FOREIGN KEY (person_id) REFERENCES person(id),
     CONSTRAINT person_pet_fk_pet_id FOREIGN KEY (pet_id) REFERENCES pet(id)
 );
 
+-- person and pet ids are allocated by the application in blocks (hibernate pooled-lo sequences), mysql has no
+-- sequences, so they are emulated by tables: next_val holds the lowest id of the next block. The table is read and
+-- updated on a second pool connection while the inserting transaction holds its own, so the app runs at most
+-- pool size - 1 inserting transactions concurrently.
+-- The tables are seeded from the highest existing id, so allocated ids never collide with data of an upgraded db.
+CREATE TABLE IF NOT EXISTS person_id_seq (
+    next_val BIGINT NOT NULL
+);
+INSERT INTO person_id_seq (next_val)
+    SELECT COALESCE(MAX(id), 0) + 1 FROM person WHERE NOT EXISTS (SELECT * FROM person_id_seq);
+
+CREATE TABLE IF NOT EXISTS pet_id_seq (
+    next_val BIGINT NOT NULL
+);
+INSERT INTO pet_id_seq (next_val)
+    SELECT COALESCE(MAX(id), 0) + 1 FROM pet WHERE NOT EXISTS (SELECT * FROM pet_id_seq);
+
 COMMIT;
\ No newline at end of file
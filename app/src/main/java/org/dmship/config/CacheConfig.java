@@ -0,0 +1,112 @@
+package org.dmship.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enables read-through caching of person and pet DTOs (see 'spring.cache.*' properties).
+ * Caching advice runs before transaction advice, so cache hits don't open a transaction (and db connection).
+ * Evictions within a transaction (e.g. updates executed in a batch by the write batcher) are deferred until
+ * the transaction commits.
+ * Values are cached as futures: a miss of a synchronized @Cacheable (sync = true) caches an incomplete future and
+ * loads the value on the caller's thread, outside of cache locks, concurrent misses of the same key wait for it.
+ * An eviction while loading removes the future, so the value loaded before the eviction is not cached.
+ * A failed load is not cached either, the waiting misses then load again.
+ * With replica enabled, evicted values are evicted again after 'pepe.datasource.replica.read-your-writes-ms':
+ * only the writing client reads from primary meanwhile, a miss of another client may cache the value from
+ * the replica before it has replicated the write.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    @Value("${pepe.datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    @Value("${pepe.datasource.replica.read-your-writes-ms:1000}")
+    private long readYourWritesMillis;
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        long evictAgainAfterMillis = replicaEnabled ? readYourWritesMillis : 0;
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, AsyncCache<Object, Object> cache) {
+                return new CallerLoadingCaffeineCache(name, cache, isAllowNullValues(), evictAgainAfterMillis);
+            }
+        };
+        cacheManager.setAsyncCacheMode(true);
+        cacheManager.setCacheSpecification(cacheProperties.getCaffeine().getSpec());
+        cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    static class CallerLoadingCaffeineCache extends CaffeineCache {
+
+        private final long evictAgainAfterMillis;
+
+        CallerLoadingCaffeineCache(String name, AsyncCache<Object, Object> cache, boolean allowNullValues,
+                                   long evictAgainAfterMillis) {
+            super(name, cache, allowNullValues);
+            this.evictAgainAfterMillis = evictAgainAfterMillis;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            while (true) {
+                CompletableFuture<Object> loading = new CompletableFuture<>();
+                CompletableFuture<Object> cached = getAsyncCache().get(key, (k, executor) -> loading);
+
+                if (cached == loading) {
+                    return (T) fromStoreValue(load(key, valueLoader, loading));
+                }
+
+                try {
+                    return (T) fromStoreValue(cached.join());
+                } catch(CancellationException e) {
+                    // load of the waited for future failed, load again
+                }
+            }
+        }
+
+        @Override
+        public void evict(Object key) {
+            super.evict(key);
+
+            if (evictAgainAfterMillis > 0) {
+                CompletableFuture.delayedExecutor(evictAgainAfterMillis, TimeUnit.MILLISECONDS)
+                        .execute(() -> super.evict(key));
+            }
+        }
+
+        private Object load(Object key, Callable<?> valueLoader, CompletableFuture<Object> loading) {
+            try {
+                Object value = toStoreValue(valueLoader.call());
+                loading.complete(value);
+                return value;
+            } catch(Throwable e) {
+                // a cancelled future is removed from the cache, a failed one would be logged by caffeine as well
+                loading.cancel(false);
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+    }
+}
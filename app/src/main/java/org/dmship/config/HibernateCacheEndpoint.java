@@ -0,0 +1,66 @@
+package org.dmship.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exposes hibernate second level cache region statistics under /actuator/hibernatecache
+ * (entity, collection and query result regions). Statistics are collected only with 'l2cache' profile.
+ */
+@Component
+@Endpoint(id = "hibernatecache")
+@RequiredArgsConstructor
+public class HibernateCacheEndpoint {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public record RegionStatistics(long hitCount, long missCount, long putCount, long elementCountInMemory) {
+
+        static RegionStatistics of(CacheRegionStatistics statistics) {
+            return new RegionStatistics(statistics.getHitCount(), statistics.getMissCount(),
+                    statistics.getPutCount(), statistics.getElementCountInMemory());
+        }
+    }
+
+    public record SecondLevelCacheStatistics(boolean secondLevelCacheEnabled,
+                                             boolean statisticsEnabled,
+                                             long queryCacheHitCount,
+                                             long queryCacheMissCount,
+                                             long queryCachePutCount,
+                                             Map<String, RegionStatistics> regions) {
+    }
+
+    @ReadOperation
+    public SecondLevelCacheStatistics secondLevelCache() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        Statistics statistics = sessionFactory.getStatistics();
+
+        Map<String, RegionStatistics> regions = new TreeMap<>();
+
+        Arrays.stream(statistics.getSecondLevelCacheRegionNames()).forEach(regionName -> {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(regionName);
+
+            if (regionStatistics != null) {
+                regions.put(regionName, RegionStatistics.of(regionStatistics));
+            }
+        });
+
+        return new SecondLevelCacheStatistics(
+                sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled(),
+                statistics.isStatisticsEnabled(),
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(),
+                regions);
+    }
+}
@@ -0,0 +1,55 @@
+package org.dmship.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.dmship.util.JsonUtil;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Object mappers of the formats the API is negotiated in: JSON, and CBOR and Smile (binary, smaller payloads)
+ * for internal clients. All are configured by {@link JsonUtil#configure}.
+ * Converter beans replace spring's default CBOR/Smile converters, which would use their own mapper configuration.
+ */
+@Configuration
+public class JacksonConfig implements WebMvcConfigurer {
+
+    private static final String API_PATH_PATTERN = "/pepe/v1/**";
+
+    @Bean
+    public ObjectMapper defaultMapper() {
+        return JsonUtil.configure(new ObjectMapper());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(JsonUtil.configure(new CBORMapper()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(JsonUtil.configure(new SmileMapper()));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // response format depends on 'Accept' header, so caches must not serve e.g. cached json to a cbor client
+        // (ETags are the same in all formats)
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        }).addPathPatterns(API_PATH_PATTERN);
+    }
+}
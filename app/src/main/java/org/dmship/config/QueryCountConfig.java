@@ -0,0 +1,68 @@
+package org.dmship.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.dmship.monitoring.QueryCountInterceptor;
+import org.dmship.monitoring.QueryCount;
+import org.dmship.monitoring.QueryCountListener;
+import org.dmship.services.WriteDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Counts sql statements and rows per http request by proxying the data source (see 'pepe.query-count.*' properties).
+ * The proxy intercepts every jdbc call and result set row, so counting is opt-in, enabled in dev and int profiles.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pepe.query-count.enabled", havingValue = "true")
+public class QueryCountConfig implements WebMvcConfigurer {
+
+    private static final String DATA_SOURCE_PROXY_NAME = "pepe-query-count";
+
+    @Value("${pepe.query-count.default-budget:10}")
+    private int defaultBudget;
+
+    @Value("${pepe.query-count.repeated-statement-threshold:5}")
+    private int repeatedStatementThreshold;
+
+    @Bean
+    public static BeanPostProcessor queryCountDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // statements of routing data sources are counted by the proxy of the data source in front of them
+                if (!(bean instanceof DataSource dataSource) || bean instanceof AbstractRoutingDataSource) {
+                    return bean;
+                }
+
+                QueryCountListener listener = new QueryCountListener();
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(DATA_SOURCE_PROXY_NAME)
+                        .listener(listener)
+                        .methodListener(listener)
+                        .proxyResultSet()
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * Writes executed by the write batcher thread are counted by the request that submitted them.
+     */
+    @Bean
+    public WriteDecorator queryCountWriteDecorator() {
+        return QueryCount::propagate;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryCountInterceptor(defaultBudget, repeatedStatementThreshold));
+    }
+}
@@ -0,0 +1,98 @@
+package org.dmship.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Routes connections of read-only transactions to the replica pool, and connections of all other transactions
+ * and of non-transactional db access to the primary pool.
+ * Must be used behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so that
+ * the connection is obtained on the first statement, once the read-only flag of the transaction is set.
+ * Read-only transactions use the primary pool as well:
+ * - for 'readYourWritesMillis' after the client of the current request last wrote (see {@link ReadYourWritesFilter}),
+ *   so that the client's reads don't miss its writes not yet replicated, reads of other clients keep using replica
+ * - for 'retryAfterMillis' after a replica connection could not be obtained, if 'fallbackToPrimary' is set
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String REPLICA_FALLBACKS = "pepe.datasource.replica.fallbacks";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    public enum Pool { PRIMARY, REPLICA }
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+
+    private final boolean fallbackToPrimary;
+    private final long retryAfterMillis;
+    private final long readYourWritesMillis;
+    private final Counter fallbacks;
+
+    private volatile long replicaRetryAtMillis;
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, HikariDataSource replica, boolean fallbackToPrimary,
+                                      long retryAfterMillis, long readYourWritesMillis, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.fallbackToPrimary = fallbackToPrimary;
+        this.retryAfterMillis = retryAfterMillis;
+        this.readYourWritesMillis = readYourWritesMillis;
+        this.fallbacks = meterRegistry.counter(REPLICA_FALLBACKS);
+
+        setTargetDataSources(Map.of(Pool.PRIMARY, primary, Pool.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Pool determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Pool.PRIMARY;
+        }
+
+        long now = System.currentTimeMillis();
+        return now - ReadYourWritesFilter.clientLastWriteMillis() < readYourWritesMillis || now < replicaRetryAtMillis
+                ? Pool.PRIMARY : Pool.REPLICA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Pool.PRIMARY) {
+            return primary.getConnection();
+        }
+
+        try {
+            return replica.getConnection();
+        } catch(SQLException e) {
+            if (!fallbackToPrimary) {
+                throw e;
+            }
+
+            replicaRetryAtMillis = System.currentTimeMillis() + retryAfterMillis;
+            fallbacks.increment();
+            logger.warn("Could not obtain replica connection, reading from primary for the next {} ms" +
+                    "\nexception:{}", retryAfterMillis, e.getMessage());
+
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Releases connections of both pools, on shutdown.
+     */
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+}
@@ -0,0 +1,86 @@
+package org.dmship.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scopes read-your-writes routing of {@link ReadWriteRoutingDataSource} to the client that wrote.
+ * Write requests (methods other than GET, HEAD, OPTIONS) return a cookie with the time they started, which expires
+ * after 'readYourWritesMillis'. Read-only transactions of requests sending the cookie within that time use
+ * the primary pool, those of other clients keep using the replica.
+ * Db access outside of the request thread (e.g. streamed response bodies) doesn't know the client, it uses
+ * the replica.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String LAST_WRITE_COOKIE = "pepe-last-write";
+
+    private static final Set<String> READ_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    private static final ThreadLocal<Long> CLIENT_LAST_WRITE_MILLIS = new ThreadLocal<>();
+
+    private final long readYourWritesMillis;
+
+    public ReadYourWritesFilter(long readYourWritesMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    /**
+     * @return start time of the last write request of the client of the current request, 0 if unknown
+     */
+    public static long clientLastWriteMillis() {
+        Long lastWriteMillis = CLIENT_LAST_WRITE_MILLIS.get();
+        return lastWriteMillis == null ? 0 : lastWriteMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+
+        if (READ_METHODS.contains(request.getMethod())) {
+            CLIENT_LAST_WRITE_MILLIS.set(lastWriteMillis(request, now));
+        } else {
+            Cookie cookie = new Cookie(LAST_WRITE_COOKIE, String.valueOf(now));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) TimeUnit.MILLISECONDS.toSeconds(readYourWritesMillis + 999));
+            response.addCookie(cookie);
+
+            CLIENT_LAST_WRITE_MILLIS.set(now);
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            CLIENT_LAST_WRITE_MILLIS.remove();
+        }
+    }
+
+    private static long lastWriteMillis(HttpServletRequest request, long now) {
+        Cookie cookie = WebUtils.getCookie(request, LAST_WRITE_COOKIE);
+
+        if (cookie == null) {
+            return 0;
+        }
+
+        try {
+            // a time in the future would route the client to the primary for longer than the window
+            long lastWriteMillis = Long.parseLong(cookie.getValue());
+            return lastWriteMillis <= now ? lastWriteMillis : 0;
+        } catch(NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.dmship.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes read-only transactions to a replica db, opt-in by 'pepe.datasource.replica.enabled'
+ * (see 'replica' profile and 'pepe.datasource.replica.*' properties).
+ * Primary pool is configured by 'spring.datasource.*' properties as usual, replica pool by
+ * 'pepe.datasource.replica.url/username/password' and 'pepe.datasource.replica.hikari.*' properties.
+ * Hikaricp metrics of the pools are tagged by pool name ('primary', 'replica').
+ */
+@Configuration
+@ConditionalOnProperty(name = "pepe.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    private static final String REPLICA_PROPERTIES_PREFIX = "pepe.datasource.replica";
+
+    @Value("${pepe.datasource.replica.fallback-to-primary:true}")
+    private boolean fallbackToPrimary;
+
+    @Value("${pepe.datasource.replica.retry-after-ms:10000}")
+    private long retryAfterMillis;
+
+    @Value("${pepe.datasource.replica.read-your-writes-ms:1000}")
+    private long readYourWritesMillis;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                                 Environment environment,
+                                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+
+        DataSourceProperties replicaProperties = binder.bind(REPLICA_PROPERTIES_PREFIX, DataSourceProperties.class)
+                .orElseGet(DataSourceProperties::new);
+        if (replicaProperties.getUrl() == null) {
+            throw new IllegalStateException("'" + REPLICA_PROPERTIES_PREFIX + ".url' must be set when replica is enabled");
+        }
+
+        HikariDataSource primary = createPool("primary", dataSourceProperties,
+                binder, "spring.datasource.hikari", registry);
+        HikariDataSource replica = createPool("replica", replicaProperties,
+                binder, REPLICA_PROPERTIES_PREFIX + ".hikari", registry);
+        replica.setReadOnly(true);
+
+        return new ReadWriteRoutingDataSource(primary, replica, fallbackToPrimary, retryAfterMillis,
+                readYourWritesMillis, registry);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${pepe.datasource.replica.read-your-writes-ms:1000} > 0")
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter(readYourWritesMillis);
+    }
+
+    private static HikariDataSource createPool(String poolName, DataSourceProperties properties, Binder binder,
+                                               String hikariPropertiesPrefix, MeterRegistry meterRegistry) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind(hikariPropertiesPrefix, Bindable.ofInstance(pool));
+
+        pool.setPoolName(poolName);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
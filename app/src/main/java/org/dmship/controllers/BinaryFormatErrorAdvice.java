@@ -0,0 +1,41 @@
+package org.dmship.controllers;
+
+import org.dmship.util.JsonUtil;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Error messages of {@link PepeControllerAdvice} are written as plain strings, not encoded in the negotiated format,
+ * so for clients accepting CBOR/Smile they are returned as 'text/plain' instead of being labelled as binary
+ * content the client would fail to decode.
+ */
+@ControllerAdvice
+public class BinaryFormatErrorAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(JsonUtil.APPLICATION_SMILE_VALUE);
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return StringHttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (MediaType.APPLICATION_CBOR.isCompatibleWith(selectedContentType) ||
+                APPLICATION_SMILE.isCompatibleWith(selectedContentType)) {
+            response.getHeaders().setContentType(TEXT_PLAIN_UTF8);
+        }
+        return body;
+    }
+}
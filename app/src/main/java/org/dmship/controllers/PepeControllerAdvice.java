@@ -1,11 +1,18 @@
 package org.dmship.controllers;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
+import org.dmship.exceptions.ResourceBadRequestException;
 import org.dmship.exceptions.ResourceConflictException;
 import org.dmship.exceptions.ResourceInternalException;
+import org.dmship.exceptions.ResourcePreconditionFailedException;
+import org.dmship.exceptions.ResourceUnavailableException;
+import org.dmship.services.ServiceMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -17,18 +24,52 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import java.util.*;
 
 @ControllerAdvice
+@RequiredArgsConstructor
 public class PepeControllerAdvice {
 
     private static Logger logger = LoggerFactory.getLogger(PepeControllerAdvice.class);
 
+    private final MeterRegistry meterRegistry;
+
     @ExceptionHandler(ResourceConflictException.class)
     public ResponseEntity<String> handleResourceConflictException(ResourceConflictException e) {
-        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        return serviceExceptionResponse(e, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ResourceBadRequestException.class)
+    public ResponseEntity<String> handleResourceBadRequestException(ResourceBadRequestException e) {
+        return serviceExceptionResponse(e, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ResourcePreconditionFailedException.class)
+    public ResponseEntity<String> handleResourcePreconditionFailedException(ResourcePreconditionFailedException e) {
+        return serviceExceptionResponse(e, HttpStatus.PRECONDITION_FAILED);
     }
 
     @ExceptionHandler(ResourceInternalException.class)
     public ResponseEntity<String> handleResourceInternalException(ResourceInternalException e) {
-        return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        return serviceExceptionResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    // the request may be retried, its outcome is unknown (see message)
+    @ExceptionHandler(ResourceUnavailableException.class)
+    public ResponseEntity<String> handleResourceUnavailableException(ResourceUnavailableException e) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return serviceExceptionResponse(e, HttpStatus.SERVICE_UNAVAILABLE, headers);
+    }
+
+    private ResponseEntity<String> serviceExceptionResponse(RuntimeException e, HttpStatus status) {
+        return serviceExceptionResponse(e, status, new HttpHeaders());
+    }
+
+    private ResponseEntity<String> serviceExceptionResponse(RuntimeException e, HttpStatus status,
+                                                            HttpHeaders headers) {
+        meterRegistry.counter(ServiceMetrics.EXCEPTIONS_COUNTER,
+                "exception", e.getClass().getSimpleName(),
+                "status", String.valueOf(status.value())).increment();
+
+        return new ResponseEntity<>(e.getMessage(), headers, status);
     }
 
     @ExceptionHandler(Exception.class)
@@ -43,35 +84,29 @@ public class PepeControllerAdvice {
 
         StringBuilder builder = new StringBuilder();
         if (!violations.isEmpty()) {
-            violations.forEach(violation -> {
-                List<String> properties = new ArrayList<>();
-                violation.getPropertyPath().iterator().forEachRemaining(node -> properties.add(node.toString()));
-
-                builder.append(String.format("param: %s, value: '%s', error: %s\n",
-                        violation.getPropertyPath(),
-                        violation.getInvalidValue(),
-                        violation.getMessage())); });
+            // appended piece by piece, String.format parses the pattern on each call
+            violations.forEach(violation -> builder
+                    .append("param: ").append(violation.getPropertyPath())
+                    .append(", value: '").append(violation.getInvalidValue())
+                    .append("', error: ").append(violation.getMessage())
+                    .append('\n'));
         }
 
-        logger.info("ConstraintViolation caught, return bad request with body:\n" + builder.toString());
+        logger.info("ConstraintViolation caught, return bad request with body:\n{}", builder);
         return new ResponseEntity<>(builder.toString(), HttpStatus.BAD_REQUEST);
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<String> handleValidationExceptions( MethodArgumentNotValidException e) {
-        Map<String, String> errors = new HashMap<>();
         StringBuilder builder = new StringBuilder();
 
-        e.getBindingResult().getAllErrors().forEach((error) -> {
-            String fieldName = ((FieldError) error).getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-
-            builder.append(String.format("param: %s, error: %s\n", fieldName, errorMessage));
-        });
+        e.getBindingResult().getAllErrors().forEach((error) -> builder
+                .append("param: ").append(((FieldError) error).getField())
+                .append(", error: ").append(error.getDefaultMessage())
+                .append('\n'));
 
-        logger.info("MethodArgumentNotValidException caught, return bad request with body:\n" + builder.toString());
+        logger.info("MethodArgumentNotValidException caught, return bad request with body:\n{}", builder);
         return new ResponseEntity<>(builder.toString(), HttpStatus.BAD_REQUEST);
     }
 }
@@ -3,55 +3,117 @@ package org.dmship.controllers;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.dmship.dto.BatchItemResultDTO;
+import org.dmship.dto.PersonMatchDTO;
 import org.dmship.dto.PersonUpdateDTO;
+import org.dmship.dto.PersonsPageDTO;
+import org.dmship.dto.VersionedDTO;
 import org.dmship.model.PersonSearchCriteria;
+import org.dmship.monitoring.QueryBudget;
 import org.dmship.services.PersonService;
+import org.dmship.services.WriteBatcher;
 import org.dmship.dto.PersonDTO;
+import org.dmship.util.CursorUtil;
+import org.dmship.util.ETagUtil;
+import org.dmship.util.JsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
 
 @RestController
-@RequestMapping(path = "/pepe/v1", produces = MediaType.APPLICATION_JSON_VALUE)
-@CrossOrigin(origins = "*")
+@RequestMapping(path = "/pepe/v1", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+        JsonUtil.APPLICATION_SMILE_VALUE})
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 @RequiredArgsConstructor
+@Validated
 public class PersonController {
 
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final String INCLUDE_PETS = "pets";
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final PersonService personService;
 
+    private final WriteBatcher writeBatcher;
+
     private static Logger logger = LoggerFactory.getLogger(PersonController.class);
 
     @Tag(name = "Create Person", description = "Persons")
     @Operation(description = "Create new person. The combination of the first name and the last name must be unique. " +
             "If successful, returns person id.")
-    @PostMapping(value="/persons", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(value="/persons", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(3)
     public ResponseEntity<Long> createPerson(@Valid @RequestBody PersonDTO personDTO) {
-        Long personId = this.personService.createPerson(personDTO);
+        Long personId = this.writeBatcher.execute(() -> this.personService.createPerson(personDTO));
         return new ResponseEntity<Long>(personId, HttpStatus.CREATED);
     }
 
+    @Tag(name = "Create Persons In Batch", description = "Persons")
+    @Operation(description = "Create multiple new persons in one request. The combination of the first name and " +
+            "the last name must be unique. Returns result per person, in request order: either created person id " +
+            "or conflict/error message. Response status is 201 if all persons were created, 207 otherwise.")
+    @PostMapping(value="/persons:batch", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<BatchItemResultDTO>> createPersons(
+            @NotEmpty @RequestBody List<@Valid PersonDTO> personDTOs) {
+        List<BatchItemResultDTO> results = this.personService.createPersons(personDTOs);
+        HttpStatus status = results.stream().allMatch(BatchItemResultDTO::isSuccess) ?
+                HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(results, status);
+    }
+
     @Tag(name = "Update Person's Address", description = "Persons")
-    @Operation(description = "Update the current living address of the existing person based on person id obtained when the person was created")
-    @PatchMapping(value="/persons/{personId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(description = "Update the current living address of the existing person based on person id obtained when the person was created. " +
+            "If 'If-Match' header is supplied, the person is updated only if its ETag still matches, otherwise " +
+            "returns 412 (the person was modified in the meantime). Returns new ETag of the person.")
+    @PatchMapping(value="/persons/{personId}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(3)
     public ResponseEntity<Void>  updatePerson(@PathVariable("personId") Long personId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                              Optional<String> ifMatch,
                                               @Valid @RequestBody PersonUpdateDTO personUpdateDTO) {
-        this.personService.updatePerson(personId, personUpdateDTO);
-        return new ResponseEntity<Void>(HttpStatus.OK);
+        Long version = this.writeBatcher.execute(() ->
+                this.personService.updatePerson(personId, personUpdateDTO, ifMatch.flatMap(ETagUtil::toVersion)));
+        return ResponseEntity.ok().eTag(ETagUtil.toETag(version)).build();
     }
 
     @Tag(name = "Retrieve Person by Id", description = "Persons")
-    @Operation(description = "Retrieve the person using person id obtained when the person was created")
-    @GetMapping(value="/persons/{personId}", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<PersonDTO>  retrievePerson(@PathVariable("personId") Long personId) {
-        PersonDTO personDTO = this.personService.retrievePerson(personId);
-        return new ResponseEntity<>(personDTO, HttpStatus.OK);
+    @Operation(description = "Retrieve the person using person id obtained when the person was created. " +
+            "Response contains ETag of the person, if it is supplied in 'If-None-Match' header and the person " +
+            "has not been modified since, returns 304 without body.")
+    @GetMapping(value="/persons/{personId}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(1)
+    public ResponseEntity<PersonDTO>  retrievePerson(@PathVariable("personId") Long personId, WebRequest webRequest) {
+        // ETag and body come from the same (cached) value, so the ETag always identifies the body it's sent with
+        VersionedDTO<PersonDTO> person = this.personService.retrievePerson(personId);
+        String eTag = ETagUtil.toETag(person.version());
+
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(eTag).body(person.dto());
     }
 
     @Tag(name = "Retrieve Persons", description = "Persons")
@@ -59,19 +121,59 @@ public class PersonController {
             "1. first name - include only persons whose first name matches the specified first name\n" +
             "2. last name - include only persons whose last name matches the specified last name\n" +
             "\n" +
-            "If no filter criteria is supplied, retrieve all persons.")
-    @GetMapping(value="/persons", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<PersonDTO>> retrievePersons(
+            "If no filter criteria is supplied, retrieve all persons.\n" +
+            "\n" +
+            "Persons are returned in pages ordered by person id. Page size is set by 'limit' request param " +
+            "(default " + DEFAULT_PAGE_LIMIT + ", max " + MAX_PAGE_LIMIT + "). If there are more persons, " +
+            "response contains 'next' cursor which should be supplied as 'cursor' request param to retrieve the next page.\n" +
+            "\n" +
+            "If 'include' request param is set to '" + INCLUDE_PETS + "', each person contains ids of its pets ('petIds').")
+    @GetMapping(value="/persons", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(3)
+    public ResponseEntity<PersonsPageDTO> retrievePersons(
             @RequestParam(required = false)
             Optional<String> firstName,
             @RequestParam(required = false)
-            Optional<String> lastName) {
+            Optional<String> lastName,
+            @RequestParam(required = false)
+            Optional<String> cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_LIMIT)
+            @Min(1) @Max(MAX_PAGE_LIMIT)
+            Integer limit,
+            @RequestParam(required = false)
+            @Pattern(regexp = INCLUDE_PETS)
+            String include) {
         PersonSearchCriteria personSearchCriteria = PersonSearchCriteria.builder()
                 .firstName(firstName)
                 .lastName(lastName)
+                .afterId(cursor.map(CursorUtil::decode))
+                .limit(Optional.of(limit))
                 .build();
 
-        List<PersonDTO> personDTOs = this.personService.retrievePersons(personSearchCriteria);
-        return new ResponseEntity<>(personDTOs, HttpStatus.OK);
+        PersonsPageDTO personsPageDTO = this.personService.retrievePersonsPage(personSearchCriteria,
+                INCLUDE_PETS.equals(include));
+        return new ResponseEntity<>(personsPageDTO, HttpStatus.OK);
+    }
+
+    @Tag(name = "Search Persons by Name", description = "Persons")
+    @Operation(description = "Type-ahead search of persons by name, supplied as 'q' request param. Each word of " +
+            "the query must match the start of a word of the person's first or last name (e.g. 'jan jans' matches " +
+            "Jan Jansen), ignoring case and accents. Query words of 4 or more characters matching less than " +
+            "'limit' names as typed are also matched with one typo (two typos from 8 characters).\n" +
+            "\n" +
+            "Returns ids and names of at most 'limit' persons (default " + DEFAULT_SEARCH_LIMIT + ", max " +
+            MAX_SEARCH_LIMIT + "), best matches first. Persons are searched in memory, without db access.")
+    @GetMapping(value="/persons/search")
+    @QueryBudget(0)
+    public ResponseEntity<List<PersonMatchDTO>> searchPersons(
+            @RequestParam
+            @NotBlank @Size(max = 200)
+            String q,
+            @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT)
+            @Min(1) @Max(MAX_SEARCH_LIMIT)
+            Integer limit) {
+        List<PersonMatchDTO> persons = this.personService.searchPersons(q, limit);
+        return new ResponseEntity<>(persons, HttpStatus.OK);
     }
 }
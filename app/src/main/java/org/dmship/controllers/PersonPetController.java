@@ -3,50 +3,125 @@ package org.dmship.controllers;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.dmship.dto.BatchItemResultDTO;
+import org.dmship.dto.PetOwnerDTO;
 import org.dmship.dto.PetsDTO;
+import org.dmship.monitoring.QueryBudget;
 import org.dmship.services.PersonPetService;
+import org.dmship.services.WriteBatcher;
+import org.dmship.util.JsonUtil;
+import org.dmship.util.LongArrayUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
-@RequestMapping(path = "/pepe/v1", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(path = "/pepe/v1", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+        JsonUtil.APPLICATION_SMILE_VALUE})
 @CrossOrigin(origins = "*")
 @RequiredArgsConstructor
+@Validated
 public class PersonPetController {
 
+    /** Max number of pets per owners lookup, their ids fit the default (8KB) request header size. */
+    static final int MAX_PET_OWNER_IDS = 500;
+
     private final PersonPetService personPetService;
 
+    private final WriteBatcher writeBatcher;
+
     private static Logger logger = LoggerFactory.getLogger(PersonPetController.class);
 
     @Tag(name = "Add Existing Pet To The Person", description = "Person Pets")
     @Operation(description = "Add existing pet to the owner (person).")
-    @PostMapping(value="/persons/{personId}/pets", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(value="/persons/{personId}/pets", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(1)
     public ResponseEntity<Void> addPersonPet(@PathVariable("personId") Long personId,
                                           @Valid @RequestBody Long petId) {
-        this.personPetService.addPersonPet(personId, petId);
+        this.writeBatcher.execute(() -> this.personPetService.addPersonPet(personId, petId));
         return new ResponseEntity<Void>(HttpStatus.CREATED);
     }
 
 
+    @Tag(name = "Add Existing Pets To The Person In Batch", description = "Person Pets")
+    @Operation(description = "Add multiple existing pets to the owner (person) in one request. " +
+            "Returns result per pet, in request order. Response status is 201 if all pets were added, 207 otherwise.")
+    @PostMapping(value="/persons/{personId}/pets:batch", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<BatchItemResultDTO>> addPersonPets(@PathVariable("personId") Long personId,
+                                                                  @Valid @RequestBody PetsDTO petsDTO) {
+        List<BatchItemResultDTO> results = this.personPetService.addPersonPets(personId,
+                LongArrayUtil.asList(petsDTO.petIds()));
+        HttpStatus status = results.stream().allMatch(BatchItemResultDTO::isSuccess) ?
+                HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(results, status);
+    }
+
     @Tag(name = "Remove Existing Pet From The Person", description = "Person Pets")
     @Operation(description = "Remove existing pet from the owner (person).")
-    @DeleteMapping(value="/persons/{personId}/pets/{petId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @DeleteMapping(value="/persons/{personId}/pets/{petId}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(1)
     public ResponseEntity<Void> removePersonPet(@PathVariable("personId") Long personId,
-                                                 @PathVariable("personId") Long petId) {
+                                                 @PathVariable("petId") Long petId) {
         this.personPetService.removePersonPet(personId, petId);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    @Tag(name = "Remove Existing Pets From The Person In Batch", description = "Person Pets")
+    @Operation(description = "Remove multiple existing pets from the owner (person) in one request. " +
+            "Returns result per pet, in request order. Response status is 200 if all pets were removed, 207 otherwise.")
+    @PostMapping(value="/persons/{personId}/pets:batchDelete", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<BatchItemResultDTO>> removePersonPets(@PathVariable("personId") Long personId,
+                                                                     @Valid @RequestBody PetsDTO petsDTO) {
+        List<BatchItemResultDTO> results = this.personPetService.removePersonPets(personId,
+                LongArrayUtil.asList(petsDTO.petIds()));
+        HttpStatus status = results.stream().allMatch(BatchItemResultDTO::isSuccess) ?
+                HttpStatus.OK : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(results, status);
+    }
+
     @Tag(name = "Retrieve All Person's Pets", description = "Person Pets")
     @Operation(description = "Retrieve all person's pets")
-    @GetMapping(value="/persons/{personId}/pets", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value="/persons/{personId}/pets", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(1)
     public ResponseEntity<PetsDTO> retrieveAllPersonPets(@PathVariable("personId") Long personId) {
         PetsDTO petsDTO = this.personPetService.retrieveAllPersonPets(personId);
         return new ResponseEntity<>(petsDTO, HttpStatus.OK);
     }
+
+    @Tag(name = "Retrieve Pet's Owner", description = "Person Pets")
+    @Operation(description = "Retrieve the owner (person id) of the pet, null if the pet has no owner.")
+    @GetMapping(value="/pets/{petId}/owner")
+    @QueryBudget(2)
+    public ResponseEntity<PetOwnerDTO> retrievePetOwner(@PathVariable("petId") Long petId) {
+        PetOwnerDTO petOwnerDTO = this.personPetService.retrievePetOwner(petId);
+        return new ResponseEntity<>(petOwnerDTO, HttpStatus.OK);
+    }
+
+    @Tag(name = "Retrieve Owners Of Pets", description = "Person Pets")
+    @Operation(description = "Retrieve owners (person ids) of at most " + MAX_PET_OWNER_IDS + " pets, " +
+            "given as comma separated 'petIds' request param. Returns owned pets with their owners, ordered by pet id, " +
+            "pets without owner and missing pets are not listed.")
+    @GetMapping(value="/pets/owners")
+    @QueryBudget(1)
+    public ResponseEntity<List<PetOwnerDTO>> retrievePetOwners(
+            @RequestParam("petIds")
+            @NotEmpty @Size(max = MAX_PET_OWNER_IDS)
+            List<Long> petIds) {
+        List<PetOwnerDTO> petOwnerDTOs = this.personPetService.retrievePetOwners(petIds);
+        return new ResponseEntity<>(petOwnerDTOs, HttpStatus.OK);
+    }
 }
@@ -1,67 +1,164 @@
 package org.dmship.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import org.dmship.config.PepeApplicationFeatures;
+import org.dmship.dto.BatchItemResultDTO;
+import org.dmship.monitoring.QueryBudget;
 import org.dmship.services.PetService;
+import org.dmship.services.WriteBatcher;
 import org.dmship.dto.PetDTO;
+import org.dmship.dto.VersionedDTO;
+import org.dmship.util.ETagUtil;
+import org.dmship.util.JsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
-@RequestMapping(path = "/pepe/v1", produces = MediaType.APPLICATION_JSON_VALUE)
-@CrossOrigin(origins = "*")
+@RequestMapping(path = "/pepe/v1", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+        JsonUtil.APPLICATION_SMILE_VALUE})
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 @RequiredArgsConstructor
+@Validated
 public class PetController {
 
+    private static final String NDJSON_SEPARATOR = "\n";
+
     private final PetService petService;
 
+    private final WriteBatcher writeBatcher;
+
+    private final ObjectMapper objectMapper;
+
     private static Logger logger = LoggerFactory.getLogger(PetController.class);
 
     @Tag(name = "Create Pet", description = "Pets")
     @Operation(description = "Create a new pet. If successful, returns pet id.")
-    @PostMapping(value="/pets", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(value="/pets", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(3)
     public ResponseEntity<Long> createPet(@Valid @RequestBody PetDTO petDTO) {
-        Long petId = this.petService.createPet(petDTO);
+        Long petId = this.writeBatcher.execute(() -> this.petService.createPet(petDTO));
         return new ResponseEntity<Long>(petId, HttpStatus.CREATED);
     }
 
+    @Tag(name = "Create Pets In Batch", description = "Pets")
+    @Operation(description = "Create multiple new pets in one request. Returns result per pet, in request order: " +
+            "either created pet id or error message. Response status is 201 if all pets were created, 207 otherwise.")
+    @PostMapping(value="/pets:batch", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<BatchItemResultDTO>> createPets(@NotEmpty @RequestBody List<@Valid PetDTO> petDTOs) {
+        List<BatchItemResultDTO> results = this.petService.createPets(petDTOs);
+        HttpStatus status = results.stream().allMatch(BatchItemResultDTO::isSuccess) ?
+                HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(results, status);
+    }
+
     @Tag(name = "Update Pet", description = "Pets")
-    @Operation(description = "Update the pet data based on pet id obtained when the pet was created")
-    @PutMapping(value="/pets/{petId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(description = "Update the pet data based on pet id obtained when the pet was created. " +
+            "If 'If-Match' header is supplied, the pet is updated only if its ETag still matches, otherwise " +
+            "returns 412 (the pet was modified in the meantime). Returns new ETag of the pet.")
+    @PutMapping(value="/pets/{petId}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(2)
     public ResponseEntity<Void>  updatePet(@PathVariable("petId") Long petId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                              Optional<String> ifMatch,
                                               @Valid @RequestBody PetDTO petDTO) {
-        this.petService.updatePet(petId, petDTO);
-        return new ResponseEntity<Void>(HttpStatus.OK);
+        Long version = this.writeBatcher.execute(() ->
+                this.petService.updatePet(petId, petDTO, ifMatch.flatMap(ETagUtil::toVersion)));
+        return ResponseEntity.ok().eTag(ETagUtil.toETag(version)).build();
     }
 
     @Tag(name = "Retrieve Pet by Id", description = "Pets")
-    @Operation(description = "Retrieve the pet data using pet id obtained when the pet was created")
-    @GetMapping(value="/pets/{petId}", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<PetDTO>  retrievePet(@PathVariable("petId") Long petId) {
-        PetDTO petDTO = this.petService.retrievePet(petId);
-        return new ResponseEntity<>(petDTO, HttpStatus.OK);
+    @Operation(description = "Retrieve the pet data using pet id obtained when the pet was created. " +
+            "Response contains ETag of the pet, if it is supplied in 'If-None-Match' header and the pet " +
+            "has not been modified since, returns 304 without body.")
+    @GetMapping(value="/pets/{petId}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(1)
+    public ResponseEntity<PetDTO>  retrievePet(@PathVariable("petId") Long petId, WebRequest webRequest) {
+        // ETag and body come from the same (cached) value, so the ETag always identifies the body it's sent with
+        VersionedDTO<PetDTO> pet = this.petService.retrievePet(petId);
+        String eTag = ETagUtil.toETag(pet.version());
+
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(eTag).body(pet.dto());
     }
 
     @Tag(name = "Retrieve All Pets", description = "Pets")
     @Operation(description = "Retrieve all pets")
-    @GetMapping(value="/pets", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value="/pets", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, JsonUtil.APPLICATION_SMILE_VALUE})
+    @QueryBudget(1)
     public ResponseEntity<List<PetDTO>> retrievePets() {
         List<PetDTO> petDTOs = this.petService.retrieveAllPets();
         return new ResponseEntity<>(petDTOs, HttpStatus.OK);
     }
 
+    @Tag(name = "Stream All Pets", description = "Pets")
+    @Operation(description = "Stream all pets as newline delimited JSON (one pet per line), ordered by pet id. " +
+            "Pets are written to the response as they are read from db, intended for clients syncing the whole catalog.")
+    @GetMapping(value="/pets", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPets() {
+        StreamingResponseBody responseBody = outputStream -> {
+            AtomicBoolean petWritten = new AtomicBoolean();
+
+            try (SequenceWriter sequenceWriter = objectMapper.writerFor(PetDTO.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .withRootValueSeparator(NDJSON_SEPARATOR)
+                    .writeValues(outputStream)) {
+                this.petService.streamAllPets(petDTO -> {
+                    try {
+                        sequenceWriter.write(petDTO);
+                        petWritten.set(true);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            // the sequence writer writes separators between pets only, an empty catalog is an empty body
+            if (petWritten.get()) {
+                outputStream.write(NDJSON_SEPARATOR.getBytes(StandardCharsets.UTF_8));
+            }
+            outputStream.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(responseBody);
+    }
+
     @Tag(name = "Delete Pet")
     @Operation(description = "Delete existing pet based on pet id obtained when pet was created")
     @DeleteMapping(value="/pets/{petId}")
+    @QueryBudget(2)
     public ResponseEntity<Void> deletePet(@PathVariable("petId") Long petId) {
         if (!PepeApplicationFeatures.DELETE_PET.isActive()) {
             return new ResponseEntity<Void>(HttpStatus.METHOD_NOT_ALLOWED);
@@ -0,0 +1,18 @@
+package org.dmship.monitoring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Max number of sql statements a controller method (or all methods of a controller) is expected to execute
+ * per request. Requests over the budget are logged as warnings, handlers without the annotation
+ * get 'pepe.query-count.default-budget'.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    int value();
+}
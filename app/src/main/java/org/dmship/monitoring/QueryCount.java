@@ -0,0 +1,81 @@
+package org.dmship.monitoring;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Number of sql statements executed and rows read by the current thread, while handling an http request.
+ * Statements executed outside of a request (e.g. on startup or by async response writers) are not counted,
+ * except for writes of the request executed by the write batcher thread (see {@link #propagate(Runnable)}).
+ */
+@Getter
+public final class QueryCount {
+
+    private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private long rows;
+
+    private final Map<String, Integer> executionsBySql = new HashMap<>();
+
+    private QueryCount() {
+    }
+
+    public static QueryCount start() {
+        QueryCount queryCount = new QueryCount();
+        CURRENT.set(queryCount);
+        return queryCount;
+    }
+
+    public static Optional<QueryCount> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wraps the task, so that the statements it executes on another thread are counted by the query count
+     * of the current thread. The current thread must wait for the task to complete before reading its count.
+     */
+    public static Runnable propagate(Runnable task) {
+        QueryCount queryCount = CURRENT.get();
+
+        if (queryCount == null) {
+            return task;
+        }
+
+        return () -> {
+            QueryCount previous = CURRENT.get();
+            CURRENT.set(queryCount);
+
+            try {
+                task.run();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    void statementExecuted(String sql) {
+        statements++;
+        executionsBySql.merge(sql, 1, Integer::sum);
+    }
+
+    void rowRead() {
+        rows++;
+    }
+
+    /**
+     * Sql statement executed the most times, typically a lazy/eager association loaded once per row (N+1).
+     */
+    public Optional<Map.Entry<String, Integer>> mostRepeatedStatement() {
+        return executionsBySql.entrySet().stream()
+                .max(Map.Entry.comparingByValue());
+    }
+}
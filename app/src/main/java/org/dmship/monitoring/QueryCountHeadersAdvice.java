@@ -0,0 +1,38 @@
+package org.dmship.monitoring;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Returns number of sql statements executed and rows read so far by the request as response headers,
+ * right before the response body is written. Enabled by 'pepe.query-count.headers.enabled' (non-prod profiles).
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "pepe.query-count.headers.enabled", havingValue = "true")
+public class QueryCountHeadersAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    public static final String ROW_COUNT_HEADER = "X-Row-Count";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        QueryCount.current().ifPresent(queryCount -> {
+            response.getHeaders().set(QUERY_COUNT_HEADER, String.valueOf(queryCount.getStatements()));
+            response.getHeaders().set(ROW_COUNT_HEADER, String.valueOf(queryCount.getRows()));
+        });
+        return body;
+    }
+}
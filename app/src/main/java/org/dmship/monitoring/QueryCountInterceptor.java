@@ -0,0 +1,86 @@
+package org.dmship.monitoring;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Counts sql statements and rows of each request handled by a controller method and logs a warning
+ * if the request went over the query budget of the method (see {@link QueryBudget}), or if the same
+ * statement was executed many times (N+1 selects).
+ * Requests handled asynchronously (e.g. streamed responses) are counted until their handler returns.
+ */
+@RequiredArgsConstructor
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+
+    private static Logger logger = LoggerFactory.getLogger(QueryCountInterceptor.class);
+
+    private final int defaultBudget;
+
+    private final int repeatedStatementThreshold;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            QueryCount.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+
+        QueryCount.current().ifPresent(queryCount -> {
+            int budget = budgetOf(handlerMethod, defaultBudget);
+
+            if (queryCount.getStatements() > budget) {
+                logger.warn("{} {} ({}) executed {} sql statements reading {} rows, over query budget of {}",
+                        request.getMethod(), request.getRequestURI(), handlerMethod.getShortLogMessage(),
+                        queryCount.getStatements(), queryCount.getRows(), budget);
+            }
+
+            if (queryCount.getStatements() < repeatedStatementThreshold) {
+                return;
+            }
+
+            queryCount.mostRepeatedStatement()
+                    .filter(statement -> statement.getValue() >= repeatedStatementThreshold)
+                    .ifPresent(statement -> logger.warn("{} {} ({}) executed the same sql statement {} times, " +
+                                    "possible N+1 selects: {}", request.getMethod(), request.getRequestURI(),
+                            handlerMethod.getShortLogMessage(), statement.getValue(), statement.getKey()));
+        });
+
+        QueryCount.stop();
+    }
+
+    /**
+     * The request thread is released before the async part of the request completes, afterCompletion is not called
+     * on it, so the count is cleared here. Statements of the async part (e.g. a streaming response body) aren't counted.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        QueryCount.stop();
+    }
+
+    /**
+     * Query budget of the controller method, or of its controller, or the default budget if neither is annotated.
+     */
+    public static int budgetOf(HandlerMethod handlerMethod, int defaultBudget) {
+        QueryBudget queryBudget = handlerMethod.getMethodAnnotation(QueryBudget.class);
+
+        if (queryBudget == null) {
+            queryBudget = handlerMethod.getBeanType().getAnnotation(QueryBudget.class);
+        }
+
+        return queryBudget != null ? queryBudget.value() : defaultBudget;
+    }
+}
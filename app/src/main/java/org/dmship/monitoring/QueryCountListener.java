@@ -0,0 +1,45 @@
+package org.dmship.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Adds statements executed (a jdbc batch counts as one statement) and rows read through the proxied
+ * data source to the {@link QueryCount} of the current request.
+ */
+public class QueryCountListener implements QueryExecutionListener, MethodExecutionListener {
+
+    private static final String NEXT_METHOD = "next";
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return;
+        }
+
+        QueryCount.current().ifPresent(queryCount -> queryCount.statementExecuted(queryInfoList.get(0).getQuery()));
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (executionContext.getTarget() instanceof ResultSet
+                && NEXT_METHOD.equals(executionContext.getMethod().getName())
+                && Boolean.TRUE.equals(executionContext.getResult())) {
+            QueryCount.current().ifPresent(QueryCount::rowRead);
+        }
+    }
+}
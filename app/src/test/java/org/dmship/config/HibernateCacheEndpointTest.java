@@ -0,0 +1,192 @@
+package org.dmship.config;
+
+import org.dmship.PepeApplication;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.dto.PetOwnerDTO;
+import org.dmship.model.Person;
+import org.dmship.model.PersonPet;
+import org.dmship.repository.PersonPetRepository;
+import org.dmship.repository.PersonRepository;
+import org.dmship.services.PersonPetService;
+import org.dmship.services.PersonService;
+import org.dmship.services.PetService;
+import org.dmship.util.DbResetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        classes = PepeApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles({"dev", "l2cache"})
+class HibernateCacheEndpointTest {
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PersonPetService personPetService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PersonPetRepository personPetRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private HibernateCacheEndpoint hibernateCacheEndpoint;
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("Person loaded twice is read from second level cache the second time")
+    public void givenPerson_whenLoadingPersonTwice_thenSecondLoadHitsCache() throws Exception {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"));
+        long hitsBefore = personRegionHitCount();
+
+        //When (actions)
+        personRepository.findById(personId);
+        personRepository.findById(personId);
+
+        //Then (postconditions)
+        assertTrue(personRegionHitCount() > hitsBefore);
+
+        mvc.perform(get("/actuator/hibernatecache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.secondLevelCacheEnabled").value(true))
+                .andExpect(jsonPath("$.statisticsEnabled").value(true))
+                .andExpect(jsonPath("$.regions['person'].hitCount").isNumber())
+                .andExpect(jsonPath("$.regions['person.personPets']").exists());
+    }
+
+    @Test
+    @DisplayName("Cached pets of a person are evicted by bulk link and unlink")
+    public void givenCachedPersonPets_whenBulkLinkingAndUnlinkingPets_thenPersonPetsReloaded() {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        assertEquals(personPetIds(personId), List.of());
+
+        //When (actions)
+        personPetService.addPersonPets(personId, List.of(petId));
+        List<Long> petIdsAfterLink = personPetIds(personId);
+
+        personPetService.removePersonPets(personId, List.of(petId));
+        List<Long> petIdsAfterUnlink = personPetIds(personId);
+
+        //Then (postconditions)
+        assertEquals(petIdsAfterLink, List.of(petId));
+        assertEquals(petIdsAfterUnlink, List.of());
+    }
+
+    @Test
+    @DisplayName("Cached pets of a person are evicted when a pet is unlinked")
+    public void givenCachedPersonPets_whenUnlinkingPet_thenPersonPetsUpdated() {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        personPetService.addPersonPet(personId, petId);
+        assertEquals(personPetIds(personId), List.of(petId));
+
+        //When (actions)
+        personPetService.removePersonPet(personId, petId);
+
+        //Then (postconditions)
+        assertEquals(personPetIds(personId), List.of());
+    }
+
+    @Test
+    @DisplayName("Pet owners looked up twice are read from query cache the second time, linking a pet refreshes them")
+    public void givenPetOwners_whenLookingUpOwnersTwiceAndLinkingPet_thenSecondLookupHitsCacheAndLinkRefreshesIt() {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        long hitsBefore = queryCacheHitCount();
+
+        //When (actions)
+        List<PetOwnerDTO> ownersBeforeLink = personPetService.retrievePetOwners(List.of(petId));
+        personPetService.retrievePetOwners(List.of(petId));
+        long hitsAfterLookups = queryCacheHitCount();
+
+        personPetService.addPersonPet(personId, petId);
+        List<PetOwnerDTO> ownersAfterLink = personPetService.retrievePetOwners(List.of(petId));
+
+        //Then (postconditions)
+        assertEquals(ownersBeforeLink, List.of());
+        assertTrue(hitsAfterLookups > hitsBefore);
+        assertEquals(ownersAfterLink, List.of(new PetOwnerDTO(petId, personId)));
+    }
+
+    @Test
+    @DisplayName("Linked pet ids looked up twice are read from query cache the second time, unlinking refreshes them")
+    public void givenLinkedPets_whenLookingUpPetIdsTwiceAndUnlinkingPets_thenSecondLookupHitsCacheAndUnlinkRefreshesIt() {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        personPetService.addPersonPet(personId, petId);
+        long hitsBefore = queryCacheHitCount();
+
+        //When (actions)
+        List<Long> petIdsBeforeUnlink = personPetRepository.findPetIdsByPersonIdAndPetIdIn(personId, List.of(petId));
+        personPetRepository.findPetIdsByPersonIdAndPetIdIn(personId, List.of(petId));
+        long hitsAfterLookups = queryCacheHitCount();
+
+        personPetService.removePersonPets(personId, List.of(petId));
+        List<Long> petIdsAfterUnlink = personPetRepository.findPetIdsByPersonIdAndPetIdIn(personId, List.of(petId));
+
+        //Then (postconditions)
+        assertEquals(petIdsBeforeUnlink, List.of(petId));
+        assertTrue(hitsAfterLookups > hitsBefore);
+        assertEquals(petIdsAfterUnlink, List.of());
+    }
+
+    private List<Long> personPetIds(Long personId) {
+        return transactionTemplate.execute(status -> {
+            Person person = personRepository.findById(personId).orElseThrow();
+            return person.getPersonPets().stream().map(PersonPet::getPetId).toList();
+        });
+    }
+
+    private long personRegionHitCount() {
+        HibernateCacheEndpoint.RegionStatistics statistics =
+                hibernateCacheEndpoint.secondLevelCache().regions().get(Person.CACHE_REGION);
+        return statistics == null ? 0 : statistics.hitCount();
+    }
+
+    private long queryCacheHitCount() {
+        return hibernateCacheEndpoint.secondLevelCache().queryCacheHitCount();
+    }
+}
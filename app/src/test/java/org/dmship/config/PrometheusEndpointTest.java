@@ -0,0 +1,62 @@
+package org.dmship.config;
+
+import org.dmship.PepeApplication;
+import org.dmship.util.DbResetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        classes = PepeApplication.class)
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class PrometheusEndpointTest {
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("Service and repository timers, service exception counters and pool metrics are exported")
+    public void givenMissingPet_whenRetrievingPet_thenMetricsExported() throws Exception {
+        //Given (preconditions)
+        mvc.perform(get("/pepe/v1/pets/{petId}", 1)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+
+        //When (actions)
+        //Then (postconditions)
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "pepe_service_seconds_count{class=\"org.dmship.services.PetService\"," +
+                                "exception=\"ResourceConflictException\",method=\"retrievePet\"")))
+                .andExpect(content().string(containsString("pepe_service_seconds{class=\"org.dmship.services.PetService\"")))
+                .andExpect(content().string(containsString("pepe_service_seconds_bucket{")))
+                .andExpect(content().string(containsString(
+                        "spring_data_repository_invocations_seconds_count{exception=\"None\",method=\"findViewById\"," +
+                                "repository=\"PetRepository\"")))
+                .andExpect(content().string(containsString(
+                        "pepe_service_exceptions_total{exception=\"ResourceConflictException\",status=\"409\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")));
+    }
+}
@@ -0,0 +1,138 @@
+package org.dmship.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.dmship.PepeApplication;
+import org.dmship.config.ReadWriteRoutingDataSource.Pool;
+import org.dmship.dto.PersonDTO;
+import org.dmship.model.PersonSearchCriteria;
+import org.dmship.services.PersonService;
+import org.dmship.util.DbResetService;
+import org.dmship.util.JsonUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        classes = PepeApplication.class,
+        properties = {
+                "pepe.datasource.replica.url=jdbc:h2:mem:pepe_replica_db;" +
+                        "INIT=RUNSCRIPT FROM '${spring.datasource.init_db_file.location}/init_db.sql';",
+                "pepe.datasource.replica.read-your-writes-ms=60000"})
+@AutoConfigureMockMvc
+@ActiveProfiles({"dev", "replica"})
+class ReplicaDataSourceTest {
+
+    private static final PersonSearchCriteria ALL_PERSONS = PersonSearchCriteria.builder()
+            .firstName(Optional.empty())
+            .lastName(Optional.empty())
+            .build();
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private ReadWriteRoutingDataSource readWriteRoutingDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+
+        replicaJdbcTemplate = new JdbcTemplate(replicaPool());
+        replicaJdbcTemplate.update("DELETE FROM person");
+        replicaJdbcTemplate.update("INSERT INTO person (id, first_name, last_name, date_of_birth, address) " +
+                "VALUES (1, 'Jan', 'Jansen', DATE '1980-06-18', 'Kalverhoeve 41, 3992 NX Houten')");
+    }
+
+    @Test
+    @DisplayName("Persons are created in primary db and read from replica db")
+    public void givenPersonInPrimaryAndReplica_whenRetrievingPersons_thenReadFromReplica() {
+        //Given (preconditions)
+        personService.createPerson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"));
+
+        //When (actions)
+        List<PersonDTO> persons = personService.retrievePersons(ALL_PERSONS);
+
+        //Then (postconditions)
+        assertEquals(persons.stream().map(PersonDTO::firstName).toList(), List.of("Jan"));
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "primary").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica").gauge());
+    }
+
+    @Test
+    @DisplayName("Client reads its own writes from primary db, other clients keep reading from replica db")
+    public void givenPersonCreatedByClient_whenClientsRetrievePersons_thenOnlyWritingClientReadsFromPrimary()
+            throws Exception {
+        //Given (preconditions)
+        Cookie lastWrite = mvc.perform(post("/pepe/v1/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"))))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(ReadYourWritesFilter.LAST_WRITE_COOKIE))
+                .andReturn().getResponse().getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE);
+
+        //When (actions) //Then (postconditions)
+        mvc.perform(get("/pepe/v1/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.persons[*].firstName").value("John"));
+
+        mvc.perform(get("/pepe/v1/persons")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.persons[*].firstName").value("Jan"));
+    }
+
+    @Test
+    @DirtiesContext
+    @DisplayName("Persons are read from primary db when replica is down")
+    public void givenReplicaDown_whenRetrievingPersons_thenReadFromPrimary() {
+        //Given (preconditions)
+        personService.createPerson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"));
+        replicaPool().close();
+
+        //When (actions)
+        List<PersonDTO> persons = personService.retrievePersons(ALL_PERSONS);
+
+        //Then (postconditions)
+        assertEquals(persons.stream().map(PersonDTO::firstName).toList(), List.of("John"));
+        assertEquals(meterRegistry.counter(ReadWriteRoutingDataSource.REPLICA_FALLBACKS).count(), 1.0);
+    }
+
+    private HikariDataSource replicaPool() {
+        return (HikariDataSource) readWriteRoutingDataSource.getResolvedDataSources().get(Pool.REPLICA);
+    }
+}
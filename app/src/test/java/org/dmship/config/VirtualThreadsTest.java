@@ -0,0 +1,45 @@
+package org.dmship.config;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.dmship.PepeApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = PepeApplication.class)
+@ActiveProfiles({"dev", "vthreads"})
+class VirtualThreadsTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext applicationContext;
+
+    @Autowired
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Test
+    @DisplayName("With 'vthreads' profile requests and async responses are handled on virtual threads")
+    public void givenVirtualThreadsProfile_whenStarted_thenRequestsHandledOnVirtualThreads() throws Exception {
+        //Given (preconditions)
+        TomcatWebServer webServer = (TomcatWebServer) applicationContext.getWebServer();
+
+        //When (actions)
+        Executor requestExecutor = webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+        boolean asyncTaskOnVirtualThread = applicationTaskExecutor.submit(() -> Thread.currentThread().isVirtual()).get();
+
+        //Then (postconditions)
+        assertInstanceOf(VirtualThreadExecutor.class, requestExecutor);
+        assertTrue(asyncTaskOnVirtualThread);
+    }
+}
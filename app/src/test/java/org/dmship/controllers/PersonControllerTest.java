@@ -1,10 +1,21 @@
 package org.dmship.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.jayway.jsonpath.JsonPath;
 import org.dmship.PepeApplication;
 import org.dmship.dto.PersonDTO;
 import org.dmship.dto.PersonUpdateDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.mapping.PersonMapper;
+import org.dmship.model.PersonView;
+import org.dmship.services.PersonNameIndex;
+import org.dmship.services.PersonPetService;
 import org.dmship.services.PersonService;
+import org.dmship.services.PetService;
 import org.dmship.util.DbResetService;
+import org.dmship.util.ETagUtil;
 import org.dmship.util.JsonUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,6 +23,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.web.servlet.MockMvc;
@@ -19,8 +32,20 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.Matchers.contains;
+import static org.dmship.util.QueryBudgetMatchers.withinQueryBudget;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -39,6 +64,18 @@ class PersonControllerTest {
     @Autowired
     private PersonService personService;
 
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PersonPetService personPetService;
+
+    @Autowired
+    private PersonNameIndex personNameIndex;
+
+    @SpyBean
+    private PersonMapper personMapper;
+
     @BeforeEach
     void beforeEach() {
         dbResetService.resetDatabase();
@@ -70,6 +107,34 @@ class PersonControllerTest {
         assertEquals(personDTOFound.address(), personDTO.address());
     }
 
+    @Test
+    @DisplayName("M1: Store multiple persons in one batch request")
+    public void givenPersonsWithDuplicateName_whenPersistingPersonsInBatch_thenMultiStatusReturned() throws Exception {
+        //Given (preconditions)
+        PersonDTO personDTO = new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten");
+        PersonDTO personDTO2 = new PersonDTO("Jan", "Jansen", LocalDate.of(1986, 3, 12),
+                "Tweede Palensteinhof 35, 2804 GP Gouda");
+
+        //When (actions)
+        ResultActions resultActions = mvc.perform(post("/pepe/v1/persons:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.toJson(List.of(personDTO, personDTO2))));
+
+        //Then (postconditions)
+        resultActions.andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].id").isNumber())
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value("CONFLICT"));
+
+        mvc.perform(post("/pepe/v1/persons:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(List.of(personDTO.toBuilder().firstName("").build()))))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("M2: Retrieve all stored persons")
     public void givenTwoPersons_whenCreatePersonsAndRetrievePersons_thenAllStoredPersonsRetrieved()  throws Exception {
@@ -95,7 +160,7 @@ class PersonControllerTest {
         mvc.perform(get("/pepe/v1/persons")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(content().json("[" +
+                .andExpect(content().json("{\"persons\":[" +
                         "{\"firstName\":\"Jan\"," +
                         "\"lastName\":\"Jansen\"," +
                         "\"dateOfBirth\":[1980,6,18]," +
@@ -103,9 +168,86 @@ class PersonControllerTest {
                         "{\"firstName\":\"Laura\"," +
                         "\"lastName\":\"Ramos\"," +
                         "\"dateOfBirth\":[1986,3,12]," +
-                        "\"address\":\"Tweede Palensteinhof 35, 2804 GP Gouda\"}]"))
-                .andExpect(jsonPath("$[?(@.firstName == \"Jan\")].lastName").value("Jansen"))
-                .andExpect(jsonPath("$[?(@.firstName == \"Laura\")].lastName").value("Ramos"));
+                        "\"address\":\"Tweede Palensteinhof 35, 2804 GP Gouda\"}]}"))
+                .andExpect(jsonPath("$.persons[?(@.firstName == \"Jan\")].lastName").value("Jansen"))
+                .andExpect(jsonPath("$.persons[?(@.firstName == \"Laura\")].lastName").value("Ramos"))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("M2: Retrieve stored persons page by page using the next cursor")
+    public void givenTwoPersons_whenRetrievePersonsWithLimit_thenPersonsRetrievedPageByPage()  throws Exception {
+        //Given (preconditions)
+        PersonDTO personDTO = new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten");
+        PersonDTO personDTO2 = new PersonDTO("Laura", "Ramos", LocalDate.of(1986, 3, 12),
+                "Tweede Palensteinhof 35, 2804 GP Gouda");
+
+        //When (actions)
+        personService.createPerson(personDTO);
+        personService.createPerson(personDTO2);
+
+        MvcResult firstPage = mvc.perform(get("/pepe/v1/persons")
+                        .param("limit", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.persons.length()").value(1))
+                .andExpect(jsonPath("$.persons[0].firstName").value("Jan"))
+                .andExpect(jsonPath("$.next").isNotEmpty())
+                .andReturn();
+
+        String next = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.next");
+
+        //Then (postconditions)
+        mvc.perform(get("/pepe/v1/persons")
+                        .param("limit", "1")
+                        .param("cursor", next)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.persons.length()").value(1))
+                .andExpect(jsonPath("$.persons[0].firstName").value("Laura"))
+                .andExpect(jsonPath("$.next").doesNotExist());
+
+        mvc.perform(get("/pepe/v1/persons")
+                        .param("cursor", "not-a-cursor")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("M2: Retrieve stored persons together with ids of their pets")
+    public void givenPersonsWithPets_whenRetrievePersonsIncludingPets_thenPetIdsRetrieved()  throws Exception {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        personService.createPerson(new PersonDTO("Laura", "Ramos", LocalDate.of(1986, 3, 12),
+                "Tweede Palensteinhof 35, 2804 GP Gouda"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        Long petId2 = petService.createPet(new PetDTO("Jackie", 5));
+
+        personPetService.addPersonPets(personId, List.of(petId, petId2));
+
+        //When (actions)
+        ResultActions resultActions = mvc.perform(get("/pepe/v1/persons")
+                        .param("include", "pets")
+                        .contentType(MediaType.APPLICATION_JSON));
+
+        //Then (postconditions)
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.persons.length()").value(2))
+                .andExpect(jsonPath("$.persons[0].petIds").value(contains(petId.intValue(), petId2.intValue())))
+                .andExpect(jsonPath("$.persons[1].petIds").isEmpty());
+
+        mvc.perform(get("/pepe/v1/persons")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.persons[0].petIds").doesNotExist());
+
+        mvc.perform(get("/pepe/v1/persons")
+                        .param("include", "owners")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -163,4 +305,153 @@ class PersonControllerTest {
         //Then (postconditions)
         resultActionsPatch.andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("S1: Update person address only if the person was not modified since it was retrieved")
+    @WithUserDetails(value = "admin")
+    public void givenRetrievedPerson_whenUpdatingPersonWithETag_thenStaleUpdateRejected() throws Exception {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+
+        String eTag = mvc.perform(get("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //When (actions)
+        mvc.perform(get("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        String updatedETag = mvc.perform(patch("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(JsonUtil.toJson(new PersonUpdateDTO("Begijnekade 15, 3512 VV Utrecht"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //Then (postconditions)
+        mvc.perform(patch("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(JsonUtil.toJson(new PersonUpdateDTO("Oudegracht 1, 3511 AA Utrecht"))))
+                .andExpect(status().isPreconditionFailed());
+
+        mvc.perform(get("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, updatedETag))
+                .andExpect(jsonPath("$.address").value("Begijnekade 15, 3512 VV Utrecht"));
+    }
+
+    @Test
+    @DisplayName("M3: Person read from db while it is being updated is not cached after the update")
+    public void givenPersonReadBeforeUpdate_whenUpdateCommitsBeforeReadIsCached_thenUpdatedPersonRetrieved()
+            throws Exception {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        PersonUpdateDTO personUpdateDTO = new PersonUpdateDTO("Begijnekade 15, 3512 VV Utrecht");
+        CountDownLatch personRead = new CountDownLatch(1);
+        CountDownLatch updateCommitted = new CountDownLatch(1);
+
+        // the cache miss maps (and caches) the person read from db only after the update has committed
+        doAnswer(invocation -> {
+            personRead.countDown();
+            updateCommitted.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(personMapper).toDTO(any(PersonView.class));
+
+        //When (actions)
+        Long updatedVersion;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<?> read = executor.submit(() -> personService.retrievePerson(personId));
+            assertTrue(personRead.await(10, TimeUnit.SECONDS));
+
+            Future<Long> update = executor.submit(() ->
+                    personService.updatePerson(personId, personUpdateDTO, Optional.empty()));
+            // the eviction after the update's commit doesn't wait for the read
+            updatedVersion = update.get(10, TimeUnit.SECONDS);
+            updateCommitted.countDown();
+
+            read.get(10, TimeUnit.SECONDS);
+        }
+
+        //Then (postconditions)
+        mvc.perform(get("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETagUtil.toETag(updatedVersion)))
+                .andExpect(jsonPath("$.address").value(personUpdateDTO.address()));
+    }
+
+    @Test
+    @DisplayName("Persons are searched by name prefix and with typos, without db access")
+    public void givenPersons_whenSearchingPersonsByName_thenBestMatchesReturned() throws Exception {
+        //Given (preconditions)
+        personNameIndex.rebuild();
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        personService.createPerson(new PersonDTO("Piet", "Jansma", LocalDate.of(1975, 1, 9),
+                "Tweede Palensteinhof 35, 2804 GP Gouda"));
+
+        //When (actions)
+        //Then (postconditions)
+        mvc.perform(get("/pepe/v1/persons/search")
+                        .param("q", "jan jnasen")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(personId.intValue())))
+                .andExpect(jsonPath("$[0].firstName").value("Jan"))
+                .andExpect(jsonPath("$[0].lastName").value("Jansen"))
+                .andExpect(withinQueryBudget());
+
+        mvc.perform(get("/pepe/v1/persons/search")
+                        .param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("M1, M3: Person is stored and retrieved in binary formats (CBOR, Smile), JSON by default")
+    public void givenNewPerson_whenPersistingAndRetrievingPersonInBinaryFormats_thenSamePersonRetrieved()
+            throws Exception {
+        //Given (preconditions)
+        PersonDTO personDTO = new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten");
+        ObjectMapper cborMapper = JsonUtil.configure(new CBORMapper());
+        ObjectMapper smileMapper = JsonUtil.configure(new SmileMapper());
+
+        //When (actions)
+        MvcResult createResult = mvc.perform(post("/pepe/v1/persons")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cborMapper.writeValueAsBytes(personDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        Long personId = cborMapper.readValue(createResult.getResponse().getContentAsByteArray(), Long.class);
+
+        MvcResult retrieveResult = mvc.perform(get("/pepe/v1/persons/{personId}", personId)
+                        .contentType(JsonUtil.APPLICATION_SMILE_VALUE)
+                        .accept(JsonUtil.APPLICATION_SMILE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(JsonUtil.APPLICATION_SMILE_VALUE))
+                .andReturn();
+
+        //Then (postconditions)
+        assertEquals(smileMapper.readValue(retrieveResult.getResponse().getContentAsByteArray(), PersonDTO.class),
+                personDTO);
+
+        mvc.perform(get("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.firstName").value("Jan"));
+    }
+}
@@ -1,28 +1,68 @@
 package org.dmship.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.dmship.PepeApplication;
 import org.dmship.config.PepeApplicationFeatures;
+import org.dmship.dto.PersonDTO;
 import org.dmship.dto.PetDTO;
+import org.dmship.dto.VersionedDTO;
 import org.dmship.exceptions.ResourceConflictException;
+import org.dmship.mapping.PetMapper;
+import org.dmship.model.PetView;
+import org.dmship.services.IdAllocationLimiter;
+import org.dmship.services.PersonPetService;
+import org.dmship.services.PersonService;
 import org.dmship.services.PetService;
+import org.dmship.services.WriteBatcher;
+import org.dmship.services.WriteDecorator;
 import org.dmship.util.DbResetService;
+import org.dmship.util.ETagUtil;
 import org.dmship.util.JsonUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.togglz.junit5.AllEnabled;
 import org.togglz.testing.TestFeatureManager;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.dmship.util.QueryBudgetMatchers.withinQueryBudget;
+import static org.hamcrest.Matchers.hasItem;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(
@@ -40,6 +80,33 @@ class PetControllerTest {
     @Autowired
     private PetService petService;
 
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonPetService personPetService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private IdAllocationLimiter idAllocationLimiter;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Autowired
+    private ObjectProvider<WriteDecorator> writeDecorator;
+
+    @SpyBean
+    private PetMapper petMapper;
+
     @BeforeEach
     void beforeEach() {
         dbResetService.resetDatabase();
@@ -68,6 +135,312 @@ class PetControllerTest {
         assertEquals(petDTOFound.age(), petDTO.age());
     }
 
+    @Test
+    @DisplayName("S4: Retrieved pet is cached until the pet is updated")
+    public void givenCachedPet_whenUpdatingPet_thenUpdatedPetRetrieved() throws Exception {
+        //Given (preconditions)
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        CacheStats statsBefore = petsCacheStats();
+
+        //When (actions)
+        mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"name\":\"Caesar\",\"age\":3}"));
+
+        mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"name\":\"Caesar\",\"age\":3}"));
+
+        mvc.perform(put("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(new PetDTO("Caesar Sr", 4))))
+                .andExpect(status().isOk());
+
+        //Then (postconditions)
+        mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"name\":\"Caesar Sr\",\"age\":4}"));
+
+        CacheStats stats = petsCacheStats().minus(statsBefore);
+        assertEquals(stats.hitCount(), 1);
+        assertEquals(stats.missCount(), 2);
+    }
+
+    @Test
+    @DisplayName("S4: Retrieved pet is revalidated by its ETag and updated only if it was not modified since")
+    public void givenRetrievedPet_whenRevalidatingAndUpdatingPetWithETag_thenNotModifiedAndStaleUpdateRejected()
+            throws Exception {
+        //Given (preconditions)
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+
+        String eTag = mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        CacheStats statsBefore = petsCacheStats();
+
+        //When (actions)
+        mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        mvc.perform(put("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(JsonUtil.toJson(new PetDTO("Caesar Sr", 4))))
+                .andExpect(status().isOk());
+
+        //Then (postconditions)
+        mvc.perform(put("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(JsonUtil.toJson(new PetDTO("Caesar Jr", 1))))
+                .andExpect(status().isPreconditionFailed());
+
+        mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"name\":\"Caesar Sr\",\"age\":4}"));
+
+        // revalidation is served from the cache, the update evicts the pet
+        CacheStats stats = petsCacheStats().minus(statsBefore);
+        assertEquals(stats.hitCount(), 1L);
+        assertEquals(stats.missCount(), 1L);
+    }
+
+    @Test
+    @DisplayName("S4: Pet is updated and revalidated in binary formats (Smile, CBOR), responses vary by 'Accept'")
+    public void givenPet_whenUpdatingAndRetrievingPetInBinaryFormats_thenSamePetRetrieved() throws Exception {
+        //Given (preconditions)
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        PetDTO petDTO = new PetDTO("Caesar Sr", 4);
+        ObjectMapper smileMapper = JsonUtil.configure(new SmileMapper());
+        ObjectMapper cborMapper = JsonUtil.configure(new CBORMapper());
+
+        //When (actions)
+        String eTag = mvc.perform(put("/pepe/v1/pets/{petId}", petId)
+                        .contentType(JsonUtil.APPLICATION_SMILE_VALUE)
+                        .content(smileMapper.writeValueAsBytes(petDTO)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult result = mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn();
+
+        //Then (postconditions)
+        assertEquals(cborMapper.readValue(result.getResponse().getContentAsByteArray(), PetDTO.class), petDTO);
+
+        mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+
+        // error messages are not encoded in binary formats
+        mvc.perform(get("/pepe/v1/pets/{petId}", petId + 1000)
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isConflict())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andExpect(content().string("Pet with id '" + (petId + 1000) + "' not found"));
+    }
+
+
+    @Test
+    @DisplayName("S4: Owners of pets are looked up by pet ids, pets without owner are not listed")
+    public void givenOwnedAndUnownedPets_whenRetrievingPetOwners_thenOwnersReturned() throws Exception {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        Long petId2 = petService.createPet(new PetDTO("Jackie", 5));
+        Long petId3 = petService.createPet(new PetDTO("Nero", 1));
+
+        personPetService.addPersonPet(personId, petId3);
+        personPetService.addPersonPet(personId, petId);
+
+        //When (actions)
+        //Then (postconditions)
+        mvc.perform(get("/pepe/v1/pets/{petId}/owner", petId))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"petId\":" + petId + ",\"personId\":" + personId + "}", true))
+                .andExpect(withinQueryBudget());
+
+        mvc.perform(get("/pepe/v1/pets/{petId}/owner", petId2))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"petId\":" + petId2 + ",\"personId\":null}", true))
+                .andExpect(withinQueryBudget());
+
+        mvc.perform(get("/pepe/v1/pets/{petId}/owner", petId3 + 1000))
+                .andExpect(status().isConflict());
+
+        mvc.perform(get("/pepe/v1/pets/owners")
+                        .param("petIds", petId3 + "," + petId2 + "," + petId + "," + (petId3 + 1000)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[" +
+                        "{\"petId\":" + petId + ",\"personId\":" + personId + "}," +
+                        "{\"petId\":" + petId3 + ",\"personId\":" + personId + "}]", true))
+                .andExpect(withinQueryBudget());
+
+        mvc.perform(get("/pepe/v1/pets/owners")
+                        .param("petIds", ""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("S4: Pet read from db while it is being updated is returned with the ETag of the version read")
+    public void givenPetReadBeforeUpdate_whenUpdateCommitsBeforeReadIsCached_thenETagMatchesBody() throws Exception {
+        //Given (preconditions)
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        PetDTO updatedPetDTO = new PetDTO("Caesar Sr", 4);
+        CountDownLatch petRead = new CountDownLatch(1);
+        CountDownLatch updateCommitted = new CountDownLatch(1);
+
+        // the cache miss maps (and caches) the pet read from db only after the update has committed
+        doAnswer(invocation -> {
+            petRead.countDown();
+            updateCommitted.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(petMapper).toDTO(any(PetView.class));
+
+        //When (actions)
+        VersionedDTO<PetDTO> petReadBeforeUpdate;
+        Long updatedVersion;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<VersionedDTO<PetDTO>> read = executor.submit(() -> petService.retrievePet(petId));
+            assertTrue(petRead.await(10, TimeUnit.SECONDS));
+
+            Future<Long> update = executor.submit(() -> petService.updatePet(petId, updatedPetDTO, Optional.empty()));
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                while (!petService.findById(petId).orElseThrow().equals(updatedPetDTO)) {
+                    Thread.sleep(10);
+                }
+            });
+            updateCommitted.countDown();
+
+            petReadBeforeUpdate = read.get(10, TimeUnit.SECONDS);
+            updatedVersion = update.get(10, TimeUnit.SECONDS);
+        }
+
+        MvcResult result = mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //Then (postconditions)
+        assertEquals(petReadBeforeUpdate.dto(), new PetDTO("Caesar", 3));
+        assertEquals(petReadBeforeUpdate.version(), 0L);
+
+        PetDTO petDTO = JsonUtil.configure(new ObjectMapper())
+                .readValue(result.getResponse().getContentAsByteArray(), PetDTO.class);
+        assertEquals(result.getResponse().getHeader(HttpHeaders.ETAG), ETagUtil.toETag(
+                petDTO.equals(updatedPetDTO) ? updatedVersion : petReadBeforeUpdate.version()));
+    }
+
+    @Test
+    @DisplayName("S5: Pet updated in a write batch is evicted from the cache after the batch commits")
+    public void givenCachedPet_whenReadBeforeBatchCommits_thenUpdatedPetReturnedAfterCommit() throws Exception {
+        //Given (preconditions)
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        petService.retrievePet(petId);
+        PetDTO updatedPetDTO = new PetDTO("Caesar Sr", 4);
+
+        WriteBatcher writeBatcher = new WriteBatcher(transactionTemplate, entityManager, idAllocationLimiter,
+                meterRegistry, writeDecorator, true, 1, 50, 10000);
+        writeBatcher.start();
+
+        //When (actions)
+        Long updatedVersion;
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            // the pet is read by another request after the update, before the batch commits
+            updatedVersion = writeBatcher.execute(() -> {
+                Long version = petService.updatePet(petId, updatedPetDTO, Optional.empty());
+
+                try {
+                    executor.submit(() -> petService.retrievePet(petId)).get(10, TimeUnit.SECONDS);
+                } catch(Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return version;
+            });
+        } finally {
+            writeBatcher.stop();
+        }
+
+        //Then (postconditions)
+        mvc.perform(get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETagUtil.toETag(updatedVersion)))
+                .andExpect(content().json(new String(JsonUtil.toJson(updatedPetDTO))));
+    }
+
+    private CacheStats petsCacheStats() {
+        // the cache manager decorates caffeine caches to evict after commit
+        Cache<?, ?> petsCache = (Cache<?, ?>) cacheManager.getCache(PetService.PETS_CACHE).getNativeCache();
+        return petsCache.stats();
+    }
+
+    @Test
+    @DisplayName("S3: Streaming an empty catalog returns an empty body")
+    public void givenNoPets_whenStreamingPets_thenEmptyBody() throws Exception {
+        //When (actions)
+        MvcResult result = mvc.perform(get("/pepe/v1/pets")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //Then (postconditions)
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("S3: Stream all stored pets as newline delimited JSON")
+    public void givenTwoPets_whenStreamingPets_thenPetsStreamedOnePerLine() throws Exception {
+        //Given (preconditions)
+        petService.createPet(new PetDTO("Caesar", 3));
+        petService.createPet(new PetDTO("Jackie", 5));
+
+        //When (actions)
+        MvcResult result = mvc.perform(get("/pepe/v1/pets")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //Then (postconditions)
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"name\":\"Caesar\",\"age\":3}\n" +
+                        "{\"name\":\"Jackie\",\"age\":5}\n"));
+
+        mvc.perform(get("/pepe/v1/pets")
+                        .accept(MediaType.ALL)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
     @Test
     @DisplayName("C2: Delete pet's data (feature DELETE_DOG enabled)")
     @AllEnabled(PepeApplicationFeatures.class)
@@ -124,4 +497,4 @@ class PetControllerTest {
         //Then (postconditions)
         deleteResultActions.andExpect(status().isMethodNotAllowed());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,213 @@
+package org.dmship.monitoring;
+
+import org.dmship.PepeApplication;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PersonUpdateDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.services.PersonPetService;
+import org.dmship.services.PersonService;
+import org.dmship.services.PetService;
+import org.dmship.util.AllocationProfiler;
+import org.dmship.util.AllocationProfiler.Profile;
+import org.dmship.util.DbResetService;
+import org.dmship.util.JsonUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Measures bytes allocated per request of each endpoint (request handled by MockMvc on the test thread,
+ * with info logging as in production)
+ * and fails if any endpoint allocates more than its budget in 'allocation-budgets.properties'.
+ * Over-budget endpoints are reported with their top allocating call sites (JFR allocation samples).
+ * Run with '-Dpepe.allocation-budgets.record=true' to write budgets of the current code
+ * (measured bytes plus {@link #RECORD_HEADROOM_PERCENT}) to 'target/allocation-budgets.properties' instead.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        classes = PepeApplication.class,
+        properties = {
+                "logging.level.org.dmship=info",
+                "logging.level.org.hibernate.SQL=info",
+                "logging.level.org.hibernate.orm.jdbc.bind=info"})
+@AutoConfigureMockMvc(print = MockMvcPrint.NONE)
+class AllocationBudgetTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AllocationBudgetTest.class);
+
+    private static final String BUDGETS_RESOURCE = "/allocation-budgets.properties";
+    private static final Path RECORDED_BUDGETS_FILE = Path.of("target", "allocation-budgets.properties");
+    private static final boolean RECORD = Boolean.getBoolean("pepe.allocation-budgets.record");
+    private static final int RECORD_HEADROOM_PERCENT = 25;
+
+    private static final int WARMUP_REQUESTS = 200;
+    private static final int MEASURED_REQUESTS = 40;
+    private static final int TOP_CALL_SITES = 15;
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PersonPetService personPetService;
+
+    private Long personId;
+    private Long petId;
+    private Long ownedPetId;
+
+    /**
+     * @param name budget key, the controller method handling the request
+     * @param request request of the given iteration
+     */
+    record Endpoint(String name, Request request) {}
+
+    @FunctionalInterface
+    interface Request {
+        RequestBuilder of(int iteration) throws Exception;
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+
+        personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        petId = petService.createPet(new PetDTO("Caesar", 3));
+        ownedPetId = petService.createPet(new PetDTO("Jackie", 5));
+        personPetService.addPersonPet(personId, ownedPetId);
+    }
+
+    @Test
+    @DisplayName("Requests of each endpoint allocate at most their allocation budget")
+    public void givenEndpoints_whenProfilingRequests_thenWithinAllocationBudgets() throws Exception {
+        //Given (preconditions)
+        Properties budgets = loadBudgets();
+        Map<String, Long> measuredBytes = new TreeMap<>();
+        List<String> overBudget = new ArrayList<>();
+
+        //When (actions)
+        for (Endpoint endpoint : endpoints()) {
+            Profile profile = AllocationProfiler.profile(
+                    iteration -> mvc.perform(endpoint.request().of(iteration)), WARMUP_REQUESTS, MEASURED_REQUESTS);
+            measuredBytes.put(endpoint.name(), profile.bytesPerRun());
+            logger.info("{} allocates {} B per request, top call sites:\n{}", endpoint.name(), profile.bytesPerRun(),
+                    profile.topCallSites(TOP_CALL_SITES));
+
+            String budget = budgets.getProperty(endpoint.name());
+
+            if (budget == null || profile.bytesPerRun() > Long.parseLong(budget)) {
+                overBudget.add(endpoint.name() + " allocates " + profile.bytesPerRun() + " B per request, budget " +
+                        budget + " B, top call sites:\n" + profile.topCallSites(TOP_CALL_SITES));
+            }
+        }
+
+        if (RECORD) {
+            recordBudgets(measuredBytes);
+            return;
+        }
+
+        //Then (postconditions)
+        assertTrue(overBudget.isEmpty(), String.join("\n", overBudget));
+    }
+
+    private List<Endpoint> endpoints() {
+        return List.of(
+                new Endpoint("createPerson", iteration -> post("/pepe/v1/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(new PersonDTO("John" + iteration, "Doe", LocalDate.of(1980, 5, 3),
+                                "Amsterdam")))),
+                new Endpoint("updatePerson", iteration -> patch("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(new PersonUpdateDTO("Kalverhoeve " + iteration + ", Houten")))),
+                new Endpoint("retrievePerson", iteration -> get("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON)),
+                new Endpoint("retrievePersons", iteration -> get("/pepe/v1/persons")
+                        .param("firstName", "Jan")
+                        .param("include", "pets")
+                        .contentType(MediaType.APPLICATION_JSON)),
+                new Endpoint("searchPersons", iteration -> get("/pepe/v1/persons/search")
+                        .param("q", "jan jans")),
+                new Endpoint("createPet", iteration -> post("/pepe/v1/pets")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(new PetDTO("Nero" + iteration, 1)))),
+                new Endpoint("updatePet", iteration -> put("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(new PetDTO("Caesar", 3 + iteration % 2)))),
+                new Endpoint("retrievePet", iteration -> get("/pepe/v1/pets/{petId}", petId)
+                        .contentType(MediaType.APPLICATION_JSON)),
+                new Endpoint("retrievePets", iteration -> get("/pepe/v1/pets")
+                        .contentType(MediaType.APPLICATION_JSON)),
+                // link and unlink the pet alternately
+                new Endpoint("addRemovePersonPet", iteration -> iteration % 2 == 0 ?
+                        post("/pepe/v1/persons/{personId}/pets", personId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(String.valueOf(petId)) :
+                        delete("/pepe/v1/persons/{personId}/pets/{petId}", personId, petId)),
+                new Endpoint("retrieveAllPersonPets", iteration -> get("/pepe/v1/persons/{personId}/pets", personId)
+                        .contentType(MediaType.APPLICATION_JSON)),
+                new Endpoint("retrievePetOwner", iteration -> get("/pepe/v1/pets/{petId}/owner", ownedPetId)),
+                new Endpoint("retrievePetOwners", iteration -> get("/pepe/v1/pets/owners")
+                        .param("petIds", petId + "," + ownedPetId)),
+                // error responses (controller advice)
+                new Endpoint("retrievePet.notFound", iteration -> get("/pepe/v1/pets/{petId}", petId + 1000)
+                        .contentType(MediaType.APPLICATION_JSON)),
+                new Endpoint("searchPersons.invalid", iteration -> get("/pepe/v1/persons/search")
+                        .param("q", " ")));
+    }
+
+    private static Properties loadBudgets() throws IOException {
+        Properties budgets = new Properties();
+
+        try (InputStream inputStream = AllocationBudgetTest.class.getResourceAsStream(BUDGETS_RESOURCE)) {
+            assertNotNull(inputStream, BUDGETS_RESOURCE + " not found");
+            budgets.load(inputStream);
+        }
+
+        return budgets;
+    }
+
+    private static void recordBudgets(Map<String, Long> measuredBytes) throws IOException {
+        StringBuilder builder = new StringBuilder("# bytes allocated per request (MockMvc), by controller method\n");
+
+        measuredBytes.forEach((name, bytes) -> builder
+                .append(name).append('=')
+                .append(bytes * (100 + RECORD_HEADROOM_PERCENT) / 100)
+                .append('\n'));
+
+        Files.createDirectories(RECORDED_BUDGETS_FILE.getParent());
+        Files.writeString(RECORDED_BUDGETS_FILE, builder);
+        logger.info("allocation budgets recorded to {}", RECORDED_BUDGETS_FILE.toAbsolutePath());
+    }
+}
@@ -0,0 +1,191 @@
+package org.dmship.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.dmship.PepeApplication;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.services.IdAllocationLimiter;
+import org.dmship.services.PersonPetService;
+import org.dmship.services.PersonService;
+import org.dmship.services.PetService;
+import org.dmship.services.WriteBatcher;
+import org.dmship.services.WriteDecorator;
+import org.dmship.util.DbResetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.dmship.util.QueryBudgetMatchers.withinQueryBudget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        classes = PepeApplication.class)
+@AutoConfigureMockMvc
+class QueryCountTest {
+
+    private static final int PETS_PER_PERSON = 20;
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PersonPetService personPetService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private IdAllocationLimiter idAllocationLimiter;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Autowired
+    private ObjectProvider<WriteDecorator> writeDecorator;
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("Number of sql statements and rows read by the request are returned as response headers")
+    public void givenPets_whenRetrievingPets_thenQueryAndRowCountReturned() throws Exception {
+        //Given (preconditions)
+        petService.createPet(new PetDTO("Caesar", 3));
+        petService.createPet(new PetDTO("Brutus", 5));
+        petService.createPet(new PetDTO("Nero", 1));
+
+        //When (actions)
+        //Then (postconditions)
+        mvc.perform(get("/pepe/v1/pets")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryCountHeadersAdvice.QUERY_COUNT_HEADER, "1"))
+                .andExpect(header().string(QueryCountHeadersAdvice.ROW_COUNT_HEADER, "3"))
+                .andExpect(withinQueryBudget());
+    }
+
+    @Test
+    @DisplayName("Retrieving person, persons with their pets and person's pets stays within query budget")
+    public void givenPersonWithManyPets_whenRetrievingPersonAndPets_thenWithinQueryBudget() throws Exception {
+        //Given (preconditions)
+        Long personId = personWithPets(PETS_PER_PERSON);
+
+        //When (actions)
+        //Then (postconditions)
+        mvc.perform(get("/pepe/v1/persons/{personId}", personId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(withinQueryBudget());
+
+        mvc.perform(get("/pepe/v1/persons?include=pets")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(withinQueryBudget());
+
+        mvc.perform(get("/pepe/v1/persons/{personId}/pets", personId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryCountHeadersAdvice.ROW_COUNT_HEADER, "" + PETS_PER_PERSON))
+                .andExpect(withinQueryBudget());
+    }
+
+    @Test
+    @DisplayName("Linking and unlinking a pet of a person with many pets stays within query budget (no N+1 selects)")
+    public void givenPersonWithManyPets_whenLinkingAndUnlinkingPet_thenWithinQueryBudget() throws Exception {
+        //Given (preconditions)
+        Long personId = personWithPets(PETS_PER_PERSON);
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+
+        //When (actions)
+        //Then (postconditions)
+        mvc.perform(post("/pepe/v1/persons/{personId}/pets", personId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.valueOf(petId)))
+                .andExpect(status().isCreated())
+                .andExpect(withinQueryBudget());
+
+        mvc.perform(delete("/pepe/v1/persons/{personId}/pets/{petId}", personId, petId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(withinQueryBudget());
+    }
+
+    @Test
+    @DisplayName("Query count of a request handled asynchronously is cleared when the request thread is released")
+    public void givenStreamedPets_whenAsyncHandlingStarted_thenQueryCountCleared() throws Exception {
+        //Given (preconditions)
+        petService.createPet(new PetDTO("Caesar", 3));
+
+        //When (actions)
+        mvc.perform(get("/pepe/v1/pets")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted());
+
+        //Then (postconditions)
+        // MockMvc handles the request on the test thread
+        assertTrue(QueryCount.current().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Statements of a write executed by the write batcher thread are counted by the submitting request")
+    public void givenWriteBatcher_whenExecutingWrite_thenStatementsCountedByCaller() {
+        //Given (preconditions)
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+
+        WriteBatcher writeBatcher = new WriteBatcher(transactionTemplate, entityManager, idAllocationLimiter,
+                meterRegistry, writeDecorator, true, 1, 50, 10000);
+        writeBatcher.start();
+
+        //When (actions)
+        QueryCount queryCount = QueryCount.start();
+
+        try {
+            writeBatcher.execute(() -> petService.updatePet(petId, new PetDTO("Caesar Sr", 4), Optional.empty()));
+        } finally {
+            QueryCount.stop();
+            writeBatcher.stop();
+        }
+
+        //Then (postconditions)
+        assertEquals(queryCount.getStatements(), 2);
+    }
+
+    private Long personWithPets(int petCount) {
+        Long personId = personService.createPerson(new PersonDTO("John", "Doe", LocalDate.of(1980, 5, 3), "Amsterdam"));
+        IntStream.range(0, petCount).forEach(i ->
+                personPetService.addPersonPet(personId, petService.createPet(new PetDTO("Pet" + i, 3))));
+        return personId;
+    }
+}
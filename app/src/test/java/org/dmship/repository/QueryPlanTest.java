@@ -0,0 +1,332 @@
+package org.dmship.repository;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.dmship.PepeApplication;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.services.PersonPetService;
+import org.dmship.services.PersonService;
+import org.dmship.services.PetService;
+import org.dmship.util.DbResetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.dmship.model.PersonSpecificationBuilder.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Captures sql statements executed by each repository method and checks their execution plans (EXPLAIN)
+ * on the configured db, h2 with 'dev' profile or mySql with 'int' profile.
+ * Hot queries (executed by the endpoints) must not scan whole tables, so that a schema or query change
+ * can't silently turn a lookup into a scan growing with the catalog.
+ */
+@SpringBootTest(classes = PepeApplication.class)
+@Import(QueryPlanTest.StatementCaptureConfig.class)
+class QueryPlanTest {
+
+    private static final int PERSONS = 20;
+    private static final int PETS_PER_PERSON = 3;
+
+    private static final List<Class<?>> REPOSITORIES = List.of(PersonRepository.class, PersonViewRepository.class,
+            PetRepository.class, PersonPetRepository.class, PersonPetIdRepository.class);
+
+    // h2 plan comment of a table or index read without condition, e.g. '/* PUBLIC.PET.tableScan */'
+    private static final Pattern H2_SCAN = Pattern.compile("/\\* ([\\w$]+\\.[\\w$]+)(\\.tableScan)? \\*/");
+
+    private static final StatementCapture statementCapture = new StatementCapture();
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PersonPetService personPetService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private PersonPetRepository personPetRepository;
+
+    private Long personId;
+    private Long petId;
+
+    enum Plan { INDEX, SCAN_ALLOWED }
+
+    record RepositoryCall(String method, String variant, Plan plan, Runnable call) {}
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+
+        @Bean
+        static BeanPostProcessor statementCaptureDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource) || bean instanceof AbstractRoutingDataSource) {
+                        return bean;
+                    }
+
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .listener(statementCapture)
+                            .build();
+                }
+            };
+        }
+    }
+
+    static class StatementCapture implements QueryExecutionListener {
+
+        private final List<QueryInfo> queries = new CopyOnWriteArrayList<>();
+        private volatile boolean capturing;
+
+        List<QueryInfo> capture(Runnable call) {
+            queries.clear();
+            capturing = true;
+
+            try {
+                call.run();
+            } finally {
+                capturing = false;
+            }
+
+            return List.copyOf(queries);
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (capturing) {
+                queries.addAll(queryInfoList);
+            }
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+
+        for (int i = 0; i < PERSONS; i++) {
+            personId = personService.createPerson(new PersonDTO("Jan" + i, "Jansen" + i, LocalDate.of(1980, 6, 18),
+                    "Kalverhoeve 41, 3992 NX Houten"));
+
+            for (int j = 0; j < PETS_PER_PERSON; j++) {
+                petId = petService.createPet(new PetDTO("Caesar" + i + "-" + j, 3));
+                personPetService.addPersonPet(personId, petId);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Query plan of each repository method is checked")
+    public void givenRepositories_whenListingCheckedMethods_thenAllMethodsCovered() {
+        //Given (preconditions)
+        Set<String> checkedMethods = repositoryCalls().stream()
+                .map(RepositoryCall::method)
+                .collect(Collectors.toSet());
+
+        //When (actions)
+        List<String> uncheckedMethods = REPOSITORIES.stream()
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods()))
+                .filter(method -> !method.isSynthetic() && !method.isDefault())
+                .map(QueryPlanTest::methodName)
+                .filter(method -> !checkedMethods.contains(method))
+                .toList();
+
+        //Then (postconditions)
+        assertEquals(uncheckedMethods, List.of());
+    }
+
+    @Test
+    @DisplayName("Hot queries are served by indexes, without table scans")
+    public void givenPersonsWithPets_whenExplainingRepositoryQueries_thenHotQueriesUseIndexes() throws Exception {
+        //Given (preconditions)
+        List<RepositoryCall> repositoryCalls = repositoryCalls();
+        List<String> scans = new ArrayList<>();
+
+        //When (actions)
+        for (RepositoryCall repositoryCall : repositoryCalls) {
+            List<QueryInfo> queries = statementCapture.capture(repositoryCall.call());
+            assertFalse(queries.isEmpty(), repositoryCall.method() + " executed no statement");
+
+            for (QueryInfo query : queries) {
+                List<String> scannedTables = explain(query);
+
+                if (repositoryCall.plan() == Plan.INDEX && !scannedTables.isEmpty()) {
+                    String variant = repositoryCall.variant().isEmpty() ? "" : " " + repositoryCall.variant();
+                    scans.add(repositoryCall.method() + variant + " scans " + scannedTables + ": " + query.getQuery());
+                }
+            }
+        }
+
+        //Then (postconditions)
+        assertEquals(scans, List.of());
+    }
+
+    private List<RepositoryCall> repositoryCalls() {
+        List<Long> petIds = List.of(petId, petId - 1);
+
+        return List.of(
+                new RepositoryCall("PersonRepository.findByFirstNameInAndLastNameIn", "", Plan.INDEX,
+                        () -> personRepository.findByFirstNameInAndLastNameIn(List.of("Jan0", "Jan1"),
+                                List.of("Jansen0", "Jansen1"))),
+                new RepositoryCall("PersonRepository.findAll", "by first name", Plan.INDEX,
+                        () -> personRepository.findAll(firstNameEqualTo(Optional.of("Jan0")))),
+                new RepositoryCall("PersonRepository.findViewById", "", Plan.INDEX,
+                        () -> personRepository.findViewById(personId)),
+                new RepositoryCall("PersonViewRepository.findViews", "by first name", Plan.INDEX,
+                        () -> personRepository.findViews(firstNameEqualTo(Optional.of("Jan0")), Optional.of(10))),
+                new RepositoryCall("PersonViewRepository.findViews", "by first and last name", Plan.INDEX,
+                        () -> personRepository.findViews(firstNameEqualTo(Optional.of("Jan0"))
+                                .and(lastNameEqualTo(Optional.of("Jansen0"))), Optional.of(10))),
+                new RepositoryCall("PersonViewRepository.findViews", "page after id", Plan.INDEX,
+                        () -> personRepository.findViews(idGreaterThan(Optional.of(personId - 5)), Optional.of(10))),
+                // last name alone isn't the leading column of the (first name, last name) index
+                new RepositoryCall("PersonViewRepository.findViews", "by last name", Plan.SCAN_ALLOWED,
+                        () -> personRepository.findViews(lastNameEqualTo(Optional.of("Jansen0")), Optional.of(10))),
+                new RepositoryCall("PersonViewRepository.findViews", "all", Plan.SCAN_ALLOWED,
+                        () -> personRepository.findViews(null, Optional.empty())),
+                new RepositoryCall("Person.personPets", "", Plan.INDEX,
+                        () -> transactionTemplate.executeWithoutResult(status ->
+                                personRepository.findById(personId).orElseThrow().getPersonPets().size())),
+                // pets are looked up by name only in tests
+                new RepositoryCall("PetRepository.findByName", "", Plan.SCAN_ALLOWED,
+                        () -> petRepository.findByName("Caesar0-0")),
+                new RepositoryCall("PetRepository.findIdsByIdIn", "", Plan.INDEX,
+                        () -> petRepository.findIdsByIdIn(petIds)),
+                new RepositoryCall("PetRepository.findViewById", "", Plan.INDEX,
+                        () -> petRepository.findViewById(petId)),
+                new RepositoryCall("PetRepository.findAllViews", "", Plan.SCAN_ALLOWED,
+                        () -> petRepository.findAllViews()),
+                new RepositoryCall("PetRepository.streamAllViews", "", Plan.SCAN_ALLOWED,
+                        () -> transactionTemplate.executeWithoutResult(status -> {
+                            try (Stream<?> pets = petRepository.streamAllViews()) {
+                                pets.count();
+                            }
+                        })),
+                new RepositoryCall("PersonPetIdRepository.findPetIdArrayByPersonId", "", Plan.INDEX,
+                        () -> personPetRepository.findPetIdArrayByPersonId(personId)),
+                new RepositoryCall("PersonPetRepository.findOwnersByPetIdIn", "", Plan.INDEX,
+                        () -> personPetRepository.findOwnersByPetIdIn(petIds)),
+                new RepositoryCall("PersonPetRepository.findOwnersByPersonIdIn", "", Plan.INDEX,
+                        () -> personPetRepository.findOwnersByPersonIdIn(List.of(personId, personId - 1))),
+                new RepositoryCall("PersonPetRepository.findPetIdsByPersonIdAndPetIdIn", "", Plan.INDEX,
+                        () -> personPetRepository.findPetIdsByPersonIdAndPetIdIn(personId, petIds)),
+                // deletes last, they remove the links of the person
+                new RepositoryCall("PersonPetRepository.deleteByPersonIdAndPetId", "", Plan.INDEX,
+                        () -> personPetRepository.deleteByPersonIdAndPetId(personId, petId)),
+                new RepositoryCall("PersonPetRepository.deleteByPersonId", "", Plan.INDEX,
+                        () -> personPetRepository.deleteByPersonId(personId)));
+    }
+
+    /**
+     * @return tables (or their indexes) read whole by the query, empty for inserts
+     */
+    private List<String> explain(QueryInfo query) throws Exception {
+        if (query.getQuery().trim().toLowerCase().startsWith("insert")) {
+            return List.of();
+        }
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query.getQuery())) {
+            if (!query.getParametersList().isEmpty()) {
+                for (ParameterSetOperation parameter : query.getParametersList().get(0)) {
+                    parameter.getMethod().invoke(statement, parameter.getArgs());
+                }
+            }
+
+            try (ResultSet plan = statement.executeQuery()) {
+                return isMySql(connection) ? mySqlScans(plan) : h2Scans(plan);
+            }
+        }
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+    private static List<String> h2Scans(ResultSet plan) throws SQLException {
+        List<String> scans = new ArrayList<>();
+
+        while (plan.next()) {
+            Matcher matcher = H2_SCAN.matcher(plan.getString(1));
+
+            while (matcher.find()) {
+                scans.add(matcher.group(1));
+            }
+        }
+
+        return scans;
+    }
+
+    /**
+     * Full table/index reads without any usable index. With few rows mySql may prefer a full read even when
+     * an index exists, such reads aren't reported.
+     */
+    private static List<String> mySqlScans(ResultSet plan) throws SQLException {
+        List<String> scans = new ArrayList<>();
+
+        while (plan.next()) {
+            String type = plan.getString("type");
+
+            if (("ALL".equals(type) || "index".equals(type)) && plan.getString("possible_keys") == null) {
+                scans.add(plan.getString("table"));
+            }
+        }
+
+        return scans;
+    }
+
+    private static String methodName(Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+}
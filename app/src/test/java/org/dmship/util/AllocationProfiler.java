@@ -0,0 +1,114 @@
+package org.dmship.util;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Measures bytes allocated by the current thread per run of an action (median of the measured runs),
+ * and samples the allocations with JFR ('jdk.ObjectAllocationSample' events) to attribute them to call sites,
+ * i.e. the first allocating frame outside of the jdk.
+ */
+public final class AllocationProfiler {
+
+    private static final String ALLOCATION_SAMPLE_EVENT = "jdk.ObjectAllocationSample";
+
+    private static final List<String> JDK_PACKAGES = List.of("java.", "javax.", "jdk.", "sun.", "com.sun.");
+
+    private static final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationProfiler() {
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run(int iteration) throws Exception;
+    }
+
+    /**
+     * @param bytesPerRun median of bytes allocated by the measured runs
+     * @param bytesPerRunByCallSite bytes allocated per run by call site, estimated from JFR samples
+     */
+    public record Profile(long bytesPerRun, Map<String, Long> bytesPerRunByCallSite) {
+
+        public String topCallSites(int limit) {
+            return bytesPerRunByCallSite.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(limit)
+                    .map(callSite -> callSite.getValue() + " B  " + callSite.getKey())
+                    .collect(Collectors.joining("\n  ", "  ", ""));
+        }
+    }
+
+    /**
+     * Runs the action 'warmupRuns' times (so that it's compiled as in a long running app), then 'measuredRuns'
+     * times while measuring its allocations. Iterations of all runs are numbered consecutively from 0.
+     */
+    public static Profile profile(Action action, int warmupRuns, int measuredRuns) throws Exception {
+        for (int iteration = 0; iteration < warmupRuns; iteration++) {
+            action.run(iteration);
+        }
+
+        long[] allocatedBytes = new long[measuredRuns];
+        Path recordingFile = Files.createTempFile("allocations", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(ALLOCATION_SAMPLE_EVENT).with("throttle", "1000/ms").withStackTrace();
+            recording.start();
+
+            for (int run = 0; run < measuredRuns; run++) {
+                long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+                action.run(warmupRuns + run);
+                allocatedBytes[run] = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            }
+
+            recording.stop();
+            recording.dump(recordingFile);
+
+            Arrays.sort(allocatedBytes);
+            return new Profile(allocatedBytes[measuredRuns / 2], bytesPerRunByCallSite(recordingFile, measuredRuns));
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
+    private static Map<String, Long> bytesPerRunByCallSite(Path recordingFile, int measuredRuns) throws Exception {
+        long threadId = Thread.currentThread().threadId();
+        Map<String, Long> bytesByCallSite = new HashMap<>();
+
+        // weight of a sample is the bytes allocated by the thread since its previous sample, the first sample
+        // also covers the warmup runs, so it's skipped
+        RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> event.getThread() != null && event.getThread().getJavaThreadId() == threadId)
+                .filter(event -> event.getStackTrace() != null)
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .skip(1)
+                .forEach(event -> bytesByCallSite.merge(callSite(event.getStackTrace().getFrames()),
+                        event.getLong("weight"), Long::sum));
+
+        bytesByCallSite.replaceAll((callSite, bytes) -> bytes / measuredRuns);
+        return bytesByCallSite;
+    }
+
+    private static String callSite(List<RecordedFrame> frames) {
+        return frames.stream()
+                .filter(frame -> JDK_PACKAGES.stream().noneMatch(frame.getMethod().getType().getName()::startsWith))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName() +
+                        ":" + frame.getLineNumber())
+                .orElse("unknown");
+    }
+}
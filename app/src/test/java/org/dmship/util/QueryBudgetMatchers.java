@@ -0,0 +1,55 @@
+package org.dmship.util;
+
+import org.dmship.monitoring.QueryBudget;
+import org.dmship.monitoring.QueryCountHeadersAdvice;
+import org.dmship.monitoring.QueryCountInterceptor;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts number of sql statements executed by a request (X-Query-Count header, 'dev' profile),
+ * e.g. mvc.perform(get(...)).andExpect(withinQueryBudget()).
+ */
+public final class QueryBudgetMatchers {
+
+    private static final int NO_BUDGET = -1;
+
+    private QueryBudgetMatchers() {
+    }
+
+    /**
+     * Request executed at most as many sql statements as {@link QueryBudget} of its controller method
+     * (or controller) allows.
+     */
+    public static ResultMatcher withinQueryBudget() {
+        return result -> {
+            HandlerMethod handlerMethod = assertInstanceOf(HandlerMethod.class, result.getHandler());
+            int budget = QueryCountInterceptor.budgetOf(handlerMethod, NO_BUDGET);
+            assertTrue(budget != NO_BUDGET, "No @QueryBudget on " + handlerMethod.getShortLogMessage());
+
+            int queryCount = queryCount(result.getResponse().getHeader(QueryCountHeadersAdvice.QUERY_COUNT_HEADER));
+            assertTrue(queryCount <= budget, handlerMethod.getShortLogMessage() + " executed " + queryCount +
+                    " sql statements, over query budget of " + budget);
+        };
+    }
+
+    /**
+     * Request executed at most maxStatements sql statements.
+     */
+    public static ResultMatcher queryCountAtMost(int maxStatements) {
+        return result -> {
+            int queryCount = queryCount(result.getResponse().getHeader(QueryCountHeadersAdvice.QUERY_COUNT_HEADER));
+            assertTrue(queryCount <= maxStatements, "Executed " + queryCount +
+                    " sql statements, expected at most " + maxStatements);
+        };
+    }
+
+    private static int queryCount(String header) {
+        assertNotNull(header, "No " + QueryCountHeadersAdvice.QUERY_COUNT_HEADER + " header");
+        return Integer.parseInt(header);
+    }
+}
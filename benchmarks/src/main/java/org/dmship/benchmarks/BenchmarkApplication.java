@@ -0,0 +1,17 @@
+package org.dmship.benchmarks;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Services, mappers and repositories on top of an in-memory db, without the web layer.
+ * Configured by 'benchmark.properties', started by benchmarks which need a db.
+ */
+@SpringBootApplication(scanBasePackages = {"org.dmship.services", "org.dmship.mapping"})
+@EnableJpaRepositories("org.dmship.repository")
+@EntityScan("org.dmship.model")
+public class BenchmarkApplication {
+
+    public static final String CONFIG_NAME_ARG = "--spring.config.name=benchmark";
+}
@@ -0,0 +1,95 @@
+package org.dmship.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.util.JsonUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Encoding and decoding of person and pet lists in the formats the API is negotiated in (JSON, CBOR, Smile),
+ * with object mappers configured as the app's message converters. Payload sizes are printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryFormatsBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectWriter personsWriter;
+    private ObjectReader personsReader;
+    private ObjectWriter petsWriter;
+    private ObjectReader petsReader;
+    private List<PersonDTO> personDTOs;
+    private List<PetDTO> petDTOs;
+    private byte[] personsPayload;
+    private byte[] petsPayload;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "cbor" -> JsonUtil.configure(new CBORMapper());
+            case "smile" -> JsonUtil.configure(new SmileMapper());
+            default -> JsonUtil.configure(new ObjectMapper());
+        };
+
+        personDTOs = IntStream.range(0, size)
+                .mapToObj(i -> new PersonDTO("Jan" + i, "Jansen" + i, LocalDate.of(1980, 6, 18).plusDays(i),
+                        "Kalverhoeve " + i + ", 3992 NX Houten"))
+                .toList();
+        petDTOs = IntStream.range(0, size)
+                .mapToObj(i -> new PetDTO("Caesar" + i, 1 + i % 199))
+                .toList();
+
+        CollectionType personsType = objectMapper.getTypeFactory().constructCollectionType(List.class, PersonDTO.class);
+        CollectionType petsType = objectMapper.getTypeFactory().constructCollectionType(List.class, PetDTO.class);
+        personsWriter = objectMapper.writerFor(personsType);
+        personsReader = objectMapper.readerFor(personsType);
+        petsWriter = objectMapper.writerFor(petsType);
+        petsReader = objectMapper.readerFor(petsType);
+
+        personsPayload = personsWriter.writeValueAsBytes(personDTOs);
+        petsPayload = petsWriter.writeValueAsBytes(petDTOs);
+        System.out.printf("%n%s payload of %d persons: %d B, of %d pets: %d B%n",
+                format, size, personsPayload.length, size, petsPayload.length);
+    }
+
+    @Benchmark
+    public byte[] encodePersons() throws IOException {
+        return personsWriter.writeValueAsBytes(personDTOs);
+    }
+
+    @Benchmark
+    public List<PersonDTO> decodePersons() throws IOException {
+        return personsReader.readValue(personsPayload);
+    }
+
+    @Benchmark
+    public byte[] encodePets() throws IOException {
+        return petsWriter.writeValueAsBytes(petDTOs);
+    }
+
+    @Benchmark
+    public List<PetDTO> decodePets() throws IOException {
+        return petsReader.readValue(petsPayload);
+    }
+}
@@ -0,0 +1,75 @@
+package org.dmship.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.dmship.controllers.PepeControllerAdvice;
+import org.dmship.controllers.PersonController;
+import org.dmship.dto.PersonDTO;
+import org.dmship.exceptions.ResourceConflictException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Error responses built by {@link PepeControllerAdvice}: conflicts and validation errors of request params/bodies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerAdviceBenchmark {
+
+    private final PepeControllerAdvice pepeControllerAdvice = new PepeControllerAdvice(new SimpleMeterRegistry());
+
+    private ResourceConflictException resourceConflictException;
+    private ConstraintViolationException constraintViolationException;
+    private MethodArgumentNotValidException methodArgumentNotValidException;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        PersonDTO invalidPersonDTO = new PersonDTO("", "", LocalDate.of(1980, 6, 18), "");
+
+        resourceConflictException = new ResourceConflictException("Person with id '1' does not exist");
+
+        try (ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = validatorFactory.getValidator();
+            constraintViolationException = new ConstraintViolationException(validator.validate(invalidPersonDTO));
+        }
+
+        BindingResult bindingResult = new BeanPropertyBindingResult(invalidPersonDTO, "personDTO");
+        bindingResult.addError(new FieldError("personDTO", "firstName", "cannot be empty."));
+        bindingResult.addError(new FieldError("personDTO", "lastName", "cannot be empty."));
+        bindingResult.addError(new FieldError("personDTO", "address", "cannot be empty."));
+
+        MethodParameter methodParameter =
+                new MethodParameter(PersonController.class.getMethod("createPerson", PersonDTO.class), 0);
+        methodArgumentNotValidException = new MethodArgumentNotValidException(methodParameter, bindingResult);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> resourceConflict() {
+        return pepeControllerAdvice.handleResourceConflictException(resourceConflictException);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> constraintViolation() {
+        return pepeControllerAdvice.handleConstraintViolationException(constraintViolationException);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> methodArgumentNotValid() {
+        return pepeControllerAdvice.handleValidationExceptions(methodArgumentNotValidException);
+    }
+}
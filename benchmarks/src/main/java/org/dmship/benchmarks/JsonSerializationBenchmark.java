@@ -0,0 +1,63 @@
+package org.dmship.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Serialization of person and pet lists, as returned by GET /persons and GET /pets.
+ * Object mapper is configured the same way spring boot configures it for the app.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectWriter personsWriter;
+    private ObjectWriter petsWriter;
+    private List<PersonDTO> personDTOs;
+    private List<PetDTO> petDTOs;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        personDTOs = IntStream.range(0, size)
+                .mapToObj(i -> new PersonDTO("Jan" + i, "Jansen" + i, LocalDate.of(1980, 6, 18).plusDays(i),
+                        "Kalverhoeve " + i + ", 3992 NX Houten"))
+                .toList();
+        petDTOs = IntStream.range(0, size)
+                .mapToObj(i -> new PetDTO("Caesar" + i, 1 + i % 199))
+                .toList();
+
+        personsWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, PersonDTO.class));
+        petsWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, PetDTO.class));
+    }
+
+    @Benchmark
+    public byte[] serializePersons() throws JsonProcessingException {
+        return personsWriter.writeValueAsBytes(personDTOs);
+    }
+
+    @Benchmark
+    public byte[] serializePets() throws JsonProcessingException {
+        return petsWriter.writeValueAsBytes(petDTOs);
+    }
+}
@@ -0,0 +1,72 @@
+package org.dmship.benchmarks;
+
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.mapping.PersonMapper;
+import org.dmship.mapping.PersonMapperImpl;
+import org.dmship.mapping.PetMapper;
+import org.dmship.mapping.PetMapperImpl;
+import org.dmship.model.Person;
+import org.dmship.model.PersonView;
+import org.dmship.model.Pet;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct mappers used on every create (toEntity) and retrieve (toDTO) request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private final PersonMapper personMapper = new PersonMapperImpl();
+    private final PetMapper petMapper = new PetMapperImpl();
+
+    private PersonDTO personDTO;
+    private Person person;
+    private PersonView personView;
+    private PetDTO petDTO;
+    private Pet pet;
+
+    @Setup
+    public void setup() {
+        personDTO = new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18), "Kalverhoeve 41, 3992 NX Houten");
+        person = personMapper.toEntity(personDTO);
+        person.setId(1L);
+        personView = new PersonView(1L, "Jan", "Jansen", LocalDate.of(1980, 6, 18), "Kalverhoeve 41, 3992 NX Houten");
+        petDTO = new PetDTO("Caesar", 3);
+        pet = petMapper.toEntity(petDTO);
+        pet.setId(1L);
+    }
+
+    @Benchmark
+    public Person personToEntity() {
+        return personMapper.toEntity(personDTO);
+    }
+
+    @Benchmark
+    public PersonDTO personToDTO() {
+        return personMapper.toDTO(person);
+    }
+
+    @Benchmark
+    public PersonDTO personViewToDTO() {
+        return personMapper.toDTO(personView);
+    }
+
+    @Benchmark
+    public Pet petToEntity() {
+        return petMapper.toEntity(petDTO);
+    }
+
+    @Benchmark
+    public PetDTO petToDTO() {
+        return petMapper.toDTO(pet);
+    }
+}
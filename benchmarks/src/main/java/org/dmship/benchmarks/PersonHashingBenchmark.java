@@ -0,0 +1,62 @@
+package org.dmship.benchmarks;
+
+import org.dmship.model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Person.equals/hashCode (based on first and last name), used whenever persons are kept in hash collections.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonHashingBenchmark {
+
+    @Param({"1000"})
+    private int size;
+
+    private List<Person> persons;
+    private Set<Person> personSet;
+
+    @Setup
+    public void setup() {
+        persons = IntStream.range(0, size)
+                .mapToObj(i -> {
+                    Person person = new Person();
+                    person.setId((long) i);
+                    person.setFirstName("Jan" + i);
+                    person.setLastName("Jansen" + i);
+                    person.setDateOfBirth(LocalDate.of(1980, 6, 18));
+                    return person;
+                })
+                .toList();
+        personSet = new HashSet<>(persons);
+    }
+
+    @Benchmark
+    public Set<Person> addAll() {
+        return new HashSet<>(persons);
+    }
+
+    @Benchmark
+    public int containsAll() {
+        int found = 0;
+
+        for (Person person : persons) {
+            if (personSet.contains(person)) {
+                found++;
+            }
+        }
+
+        return found;
+    }
+}
@@ -0,0 +1,64 @@
+package org.dmship.benchmarks;
+
+import org.dmship.dto.PersonMatchDTO;
+import org.dmship.services.PersonNameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type-ahead name search (GET /persons/search) served from the in-memory person name index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonNameSearchBenchmark {
+
+    private static final List<String> FIRST_NAMES = List.of("Jan", "Piet", "Kees", "Johan", "Willem", "Anna",
+            "Maria", "Sanne", "Lotte", "Daan", "Bram", "Sophie", "Emma", "Lucas", "Noah", "Julia");
+    private static final List<String> SYLLABLES = List.of("jan", "sen", "ber", "gen", "de", "vries", "bak",
+            "ker", "dijk", "hout", "man", "ma", "van", "ste", "rik", "hof", "mol", "len", "broek", "kamp");
+    private static final int LIMIT = 10;
+
+    @Param({"100000"})
+    private int size;
+
+    private PersonNameIndex personNameIndex;
+
+    @Setup
+    public void setup() {
+        personNameIndex = new PersonNameIndex(null);
+        Random random = new Random(42);
+
+        for (long personId = 1; personId <= size; personId++) {
+            StringBuilder lastName = new StringBuilder();
+            for (int syllable = 0; syllable < 2 + random.nextInt(2); syllable++) {
+                lastName.append(SYLLABLES.get(random.nextInt(SYLLABLES.size())));
+            }
+            lastName.setCharAt(0, Character.toUpperCase(lastName.charAt(0)));
+
+            personNameIndex.putAfterCommit(personId, FIRST_NAMES.get(random.nextInt(FIRST_NAMES.size())),
+                    lastName.toString());
+        }
+    }
+
+    @Benchmark
+    public List<PersonMatchDTO> prefix() {
+        return personNameIndex.search("jansen", LIMIT);
+    }
+
+    @Benchmark
+    public List<PersonMatchDTO> prefixWithTypo() {
+        return personNameIndex.search("jnasenber", LIMIT);
+    }
+
+    @Benchmark
+    public List<PersonMatchDTO> fullName() {
+        return personNameIndex.search("piet vriesk", LIMIT);
+    }
+}
@@ -0,0 +1,83 @@
+package org.dmship.benchmarks;
+
+import org.dmship.dto.PersonDTO;
+import org.dmship.mapping.PersonMapper;
+import org.dmship.model.Person;
+import org.dmship.model.PersonSearchCriteria;
+import org.dmship.model.PersonSpecificationBuilder;
+import org.dmship.repository.PersonRepository;
+import org.dmship.services.PersonService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Retrieving all persons as DTOs: loading managed entities in a read-write transaction and mapping them
+ * (the former read path) vs. selecting projections in a read-only transaction ({@link PersonService}).
+ * Run with '-prof gc' to compare allocated memory per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonReadPathBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private PersonService personService;
+    private PersonRepository personRepository;
+    private PersonMapper personMapper;
+    private TransactionTemplate transactionTemplate;
+    private PersonSearchCriteria allPersons;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class).run(BenchmarkApplication.CONFIG_NAME_ARG);
+        personService = context.getBean(PersonService.class);
+        personRepository = context.getBean(PersonRepository.class);
+        personMapper = context.getBean(PersonMapper.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        personService.createPersons(IntStream.range(0, size)
+                .mapToObj(i -> new PersonDTO("Jan" + i, "Jansen" + i, LocalDate.of(1980, 6, 18).plusDays(i % 1000),
+                        "Kalverhoeve " + i + ", 3992 NX Houten"))
+                .toList());
+
+        allPersons = PersonSearchCriteria.builder()
+                .firstName(Optional.empty())
+                .lastName(Optional.empty())
+                .afterId(Optional.empty())
+                .limit(Optional.empty())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PersonDTO> entities() {
+        return transactionTemplate.execute(status -> personRepository
+                .findAll(PersonSpecificationBuilder.createPersonSpecification(allPersons), Sort.by("id")).stream()
+                .map(personMapper::toDTO)
+                .toList());
+    }
+
+    @Benchmark
+    public List<PersonDTO> projections() {
+        return personService.retrievePersons(allPersons);
+    }
+}
@@ -0,0 +1,51 @@
+package org.dmship.benchmarks;
+
+import org.dmship.model.Person;
+import org.dmship.model.PersonSearchCriteria;
+import org.dmship.model.PersonSpecificationBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the person filter specification, done once per GET /persons request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonSpecificationBenchmark {
+
+    private PersonSearchCriteria noCriteria;
+    private PersonSearchCriteria allCriteria;
+
+    @Setup
+    public void setup() {
+        noCriteria = PersonSearchCriteria.builder()
+                .firstName(Optional.empty())
+                .lastName(Optional.empty())
+                .afterId(Optional.empty())
+                .limit(Optional.of(100))
+                .build();
+        allCriteria = PersonSearchCriteria.builder()
+                .firstName(Optional.of("Jan"))
+                .lastName(Optional.of("Jansen"))
+                .afterId(Optional.of(1000L))
+                .limit(Optional.of(100))
+                .build();
+    }
+
+    @Benchmark
+    public Specification<Person> noCriteria() {
+        return PersonSpecificationBuilder.createPersonSpecification(noCriteria);
+    }
+
+    @Benchmark
+    public Specification<Person> allCriteria() {
+        return PersonSpecificationBuilder.createPersonSpecification(allCriteria);
+    }
+}
@@ -0,0 +1,132 @@
+package org.dmship.benchmarks;
+
+import org.dmship.dto.BatchItemResultDTO;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.services.PersonService;
+import org.dmship.services.PetService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Mixed read/write workload (person and pet reads, every 5th request updates a pet) of {@value #REQUESTS}
+ * concurrent requests, handled by a pool of {@value #PLATFORM_THREADS} platform threads (as tomcat worker threads)
+ * vs. a virtual thread per request ('spring.threads.virtual.enabled'). The db connection pool
+ * ({@value #DB_POOL_SIZE} connections) is the limiting resource, 'dbLatencyMillis' simulates round trips
+ * to a remote db while the connection is held. Reports requests per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadingModelBenchmark {
+
+    private static final int REQUESTS = 2000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int DB_POOL_SIZE = 10;
+    private static final int SIZE = 1000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"0", "2"})
+    private long dbLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+    private PersonService personService;
+    private PetService petService;
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService executor;
+    private List<Long> personIds;
+    private List<Long> petIds;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class).run(BenchmarkApplication.CONFIG_NAME_ARG,
+                "--spring.datasource.hikari.maximum-pool-size=" + DB_POOL_SIZE);
+        personService = context.getBean(PersonService.class);
+        petService = context.getBean(PetService.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        personIds = personService.createPersons(IntStream.range(0, SIZE)
+                        .mapToObj(i -> new PersonDTO("Jan" + i, "Jansen" + i, LocalDate.of(1980, 6, 18),
+                                "Kalverhoeve " + i + ", 3992 NX Houten"))
+                        .toList()).stream()
+                .map(BatchItemResultDTO::id)
+                .toList();
+        petIds = petService.createPets(IntStream.range(0, SIZE)
+                        .mapToObj(i -> new PetDTO("Caesar" + i, 1 + i % 20))
+                        .toList()).stream()
+                .map(BatchItemResultDTO::id)
+                .toList();
+
+        executor = "virtual".equals(threads) ?
+                Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public long mixedWorkload() throws InterruptedException, ExecutionException {
+        List<Future<Object>> responses = new ArrayList<>(REQUESTS);
+
+        for (int i = 0; i < REQUESTS; i++) {
+            int request = i;
+            responses.add(executor.submit(() -> handle(request)));
+        }
+
+        long completed = 0;
+        for (Future<Object> response : responses) {
+            response.get();
+            completed++;
+        }
+        return completed;
+    }
+
+    private Object handle(int request) {
+        return transactionTemplate.execute(status -> {
+            simulateDbLatency();
+
+            if (request % 5 == 0) {
+                int petIndex = request % SIZE;
+                petService.updatePet(petIds.get(petIndex), new PetDTO("Caesar" + petIndex, 1 + request % 20));
+                return petIndex;
+            }
+
+            return request % 2 == 0 ?
+                    personService.retrievePerson(personIds.get(request % SIZE)) :
+                    petService.retrievePet(petIds.get(request % SIZE));
+        });
+    }
+
+    private void simulateDbLatency() {
+        if (dbLatencyMillis == 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(dbLatencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.dmship.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error count per endpoint (postman request name), safe for concurrent recording.
+ */
+public class LatencyStats {
+
+    private static final long MAX_TRACKED_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final Map<String, EndpointStats> statsByEndpoint = new ConcurrentHashMap<>();
+    private final EndpointStats total = new EndpointStats();
+
+    /** Latencies and error rate of one endpoint (or of all endpoints), latencies in milliseconds. */
+    public record EndpointReport(String endpoint, long count, long errors, double errorRate,
+                                 double p50, double p95, double p99, double max) {}
+
+    private static class EndpointStats {
+        private final Histogram histogram = new ConcurrentHistogram(MAX_TRACKED_LATENCY_NANOS, 3);
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyNanos, boolean success) {
+            histogram.recordValue(Math.min(latencyNanos, MAX_TRACKED_LATENCY_NANOS));
+
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        EndpointReport report(String endpoint) {
+            long count = histogram.getTotalCount();
+            long errorCount = errors.sum();
+
+            return new EndpointReport(endpoint, count, errorCount, count == 0 ? 0 : (double) errorCount / count,
+                    toMillis(histogram.getValueAtPercentile(50)),
+                    toMillis(histogram.getValueAtPercentile(95)),
+                    toMillis(histogram.getValueAtPercentile(99)),
+                    toMillis(histogram.getMaxValue()));
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    public void record(String endpoint, long latencyNanos, boolean success) {
+        statsByEndpoint.computeIfAbsent(endpoint, name -> new EndpointStats()).record(latencyNanos, success);
+        total.record(latencyNanos, success);
+    }
+
+    public List<EndpointReport> endpointReports() {
+        return statsByEndpoint.entrySet().stream()
+                .map(entry -> entry.getValue().report(entry.getKey()))
+                .sorted((report1, report2) -> report1.endpoint().compareTo(report2.endpoint()))
+                .toList();
+    }
+
+    public EndpointReport totalReport() {
+        return total.report("total");
+    }
+}
@@ -0,0 +1,194 @@
+package org.dmship.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load generator replaying the requests of the postman collection against a running app, as weighted scenarios.
+ * <p>
+ * Load is generated either open loop, starting scenarios at a fixed rate regardless of response times
+ * ('--rps'), or closed loop, with a fixed number of users each starting the next scenario when the previous
+ * one completes ('--concurrency'). Prints p50/p95/p99/max latency and error rate per endpoint, and optionally
+ * writes them as json ('--report').
+ * <p>
+ * Usage: java -cp benchmarks/target/benchmarks.jar org.dmship.loadtest.LoadTest [options]
+ * <pre>
+ *   --collection &lt;file&gt;   postman collection (default Pepe-app.postman_collection.json)
+ *   --scenarios &lt;file&gt;    scenarios json (default loadtest-scenarios.json bundled with the jar)
+ *   --base-url &lt;url&gt;      overrides 'baseUrl' collection variable
+ *   --rps &lt;n&gt;             open loop: scenarios started per second
+ *   --concurrency &lt;n&gt;     closed loop: concurrent users (default 10, if '--rps' is not set)
+ *   --duration &lt;seconds&gt;  measured duration (default 60)
+ *   --warmup &lt;seconds&gt;    duration before measuring (default 10)
+ *   --report &lt;file&gt;       json report file
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final String DEFAULT_COLLECTION = "Pepe-app.postman_collection.json";
+    private static final String DEFAULT_SCENARIOS = "loadtest-scenarios.json";
+
+    /** Load test settings and results, as written to the json report. */
+    public record LoadTestReport(String mode, int rate, int concurrency, long durationSeconds,
+                                 double throughput, LatencyStats.EndpointReport total,
+                                 List<LatencyStats.EndpointReport> endpoints) {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+        PostmanCollection collection = PostmanCollection.load(
+                Path.of(options.getOrDefault("collection", DEFAULT_COLLECTION)), objectMapper);
+        LoadTestScenarios scenarios = loadScenarios(options.get("scenarios"), objectMapper);
+
+        Map<String, String> variables = new HashMap<>(collection.variables());
+        if (options.containsKey("base-url")) {
+            variables.put("baseUrl", options.get("base-url"));
+        }
+
+        int rate = Integer.parseInt(options.getOrDefault("rps", "0"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "10"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+
+        ExecutorService httpExecutor = Executors.newCachedThreadPool();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(httpExecutor)
+                .build();
+
+        LatencyStats latencyStats = new LatencyStats();
+        ScenarioRunner runner = new ScenarioRunner(httpClient, collection, variables, scenarios, latencyStats);
+
+        System.out.printf("%s load, warmup %ds, duration %ds, target %s%n",
+                rate > 0 ? "open loop " + rate + " scenarios/s" : "closed loop " + concurrency + " users",
+                warmup.toSeconds(), duration.toSeconds(), variables.get("baseUrl"));
+
+        if (rate > 0) {
+            runOpenLoop(runner, rate, warmup, duration);
+        } else {
+            runClosedLoop(runner, concurrency, warmup, duration);
+        }
+
+        httpExecutor.shutdownNow();
+
+        LatencyStats.EndpointReport total = latencyStats.totalReport();
+        LoadTestReport report = new LoadTestReport(rate > 0 ? "open" : "closed", rate, rate > 0 ? 0 : concurrency,
+                duration.toSeconds(), (double) total.count() / duration.toSeconds(),
+                total, latencyStats.endpointReports());
+
+        printReport(report);
+
+        if (options.containsKey("report")) {
+            objectMapper.writeValue(Path.of(options.get("report")).toFile(), report);
+        }
+    }
+
+    /**
+     * Starts scenarios at a fixed rate, without waiting for responses, so a slow app does not lower
+     * the offered load (and hide its latency, as closed loop does).
+     */
+    private static void runOpenLoop(ScenarioRunner runner, int rate, Duration warmup, Duration duration)
+            throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+
+        scheduler.scheduleAtFixedRate(() -> {
+            CompletableFuture<Void> scenario = runner.runRandomScenario();
+            inFlight.add(scenario);
+            scenario.whenComplete((result, exception) -> inFlight.remove(scenario));
+        }, 0, TimeUnit.SECONDS.toNanos(1) / rate, TimeUnit.NANOSECONDS);
+
+        measure(runner, warmup, duration);
+
+        scheduler.shutdownNow();
+        awaitInFlight(inFlight);
+    }
+
+    private static void runClosedLoop(ScenarioRunner runner, int concurrency, Duration warmup, Duration duration)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService users = Executors.newFixedThreadPool(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            users.submit(() -> {
+                while (running.get()) {
+                    try {
+                        runner.runRandomScenario().join();
+                    } catch (CompletionException e) {
+                        System.err.println("scenario failed: " + e.getCause().getMessage());
+                    }
+                }
+            });
+        }
+
+        measure(runner, warmup, duration);
+
+        running.set(false);
+        users.shutdown();
+        users.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private static void measure(ScenarioRunner runner, Duration warmup, Duration duration)
+            throws InterruptedException {
+        Thread.sleep(warmup.toMillis());
+        runner.setRecording(true);
+        Thread.sleep(duration.toMillis());
+        runner.setRecording(false);
+    }
+
+    private static void awaitInFlight(Set<CompletableFuture<Void>> inFlight) {
+        try {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).get(1, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            System.err.println("not all scenarios completed: " + e.getMessage());
+        }
+    }
+
+    private static LoadTestScenarios loadScenarios(String scenariosFile, ObjectMapper objectMapper)
+            throws IOException {
+        if (scenariosFile != null) {
+            return objectMapper.readValue(Files.readAllBytes(Path.of(scenariosFile)), LoadTestScenarios.class);
+        }
+
+        try (InputStream scenarios = LoadTest.class.getClassLoader().getResourceAsStream(DEFAULT_SCENARIOS)) {
+            return objectMapper.readValue(scenarios, LoadTestScenarios.class);
+        }
+    }
+
+    private static void printReport(LoadTestReport report) {
+        System.out.printf("%nthroughput: %.1f requests/s%n%n", report.throughput());
+        System.out.printf("%-40s %9s %8s %8s %10s %10s %10s %10s%n",
+                "endpoint", "count", "errors", "error %", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+        List<LatencyStats.EndpointReport> rows = new ArrayList<>(report.endpoints());
+        rows.add(report.total());
+        rows.forEach(row -> System.out.printf("%-40s %9d %8d %8.2f %10.2f %10.2f %10.2f %10.2f%n",
+                row.endpoint(), row.count(), row.errors(), row.errorRate() * 100,
+                row.p50(), row.p95(), row.p99(), row.max()));
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected '--<option> <value>', found '" + args[i] + "'");
+            }
+
+            options.put(args[i].substring(2), args[++i]);
+        }
+
+        return options;
+    }
+}
@@ -0,0 +1,26 @@
+package org.dmship.loadtest;
+
+import java.util.List;
+
+/** Weighted load test scenarios, read from json (see 'loadtest-scenarios.json').
+ *
+ * @param scenarios scenarios, one of them is picked at random (according to weights) per scenario execution
+ */
+public record LoadTestScenarios(
+
+    List<Scenario> scenarios) {
+
+    /** Sequence of postman collection requests executed one after another, e.g. create person, then link a pet.
+     *
+     * @param name scenario name
+     * @param weight relative frequency of the scenario
+     * @param requests names of the postman collection requests
+     */
+    public record Scenario(
+
+        String name,
+
+        int weight,
+
+        List<String> requests) {}
+}
@@ -0,0 +1,106 @@
+package org.dmship.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Requests and variables of a postman collection (v2.1 format), e.g. 'Pepe-app.postman_collection.json'.
+ */
+public class PostmanCollection {
+
+    private static final Pattern SAVE_RESPONSE_SCRIPT =
+            Pattern.compile("pm\\.collectionVariables\\.set\\(['\"](\\w+)['\"],\\s*pm\\.response\\.text\\(\\)\\)");
+
+    private final Map<String, RequestTemplate> requests = new LinkedHashMap<>();
+    private final Map<String, String> variables = new HashMap<>();
+
+    public static PostmanCollection load(Path collectionFile, ObjectMapper objectMapper) throws IOException {
+        JsonNode collection = objectMapper.readTree(collectionFile.toFile());
+
+        PostmanCollection postmanCollection = new PostmanCollection();
+        collection.path("variable").forEach(variable ->
+                postmanCollection.variables.put(variable.path("key").asText(), variable.path("value").asText()));
+        postmanCollection.addItems(collection.path("item"));
+        return postmanCollection;
+    }
+
+    public Map<String, RequestTemplate> requests() {
+        return requests;
+    }
+
+    public Map<String, String> variables() {
+        return variables;
+    }
+
+    public RequestTemplate request(String name) {
+        RequestTemplate request = requests.get(name);
+
+        if (request == null) {
+            throw new IllegalArgumentException("Request '" + name + "' not found in postman collection");
+        }
+
+        return request;
+    }
+
+    private void addItems(JsonNode items) {
+        for (JsonNode item : items) {
+            if (item.has("item")) {
+                addItems(item.path("item")); // folder
+            } else {
+                RequestTemplate request = toRequestTemplate(item);
+                requests.put(request.name(), request);
+            }
+        }
+    }
+
+    private static RequestTemplate toRequestTemplate(JsonNode item) {
+        JsonNode request = item.path("request");
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        request.path("header").forEach(header -> {
+            if (!header.path("disabled").asBoolean()) {
+                headers.put(header.path("key").asText(), header.path("value").asText());
+            }
+        });
+
+        JsonNode url = request.path("url");
+        String rawUrl = url.isTextual() ? url.asText() : url.path("raw").asText();
+
+        String basicAuthUsername = null;
+        String basicAuthPassword = null;
+        JsonNode auth = request.path("auth");
+        if ("basic".equals(auth.path("type").asText())) {
+            for (JsonNode authParam : auth.path("basic")) {
+                switch (authParam.path("key").asText()) {
+                    case "username" -> basicAuthUsername = authParam.path("value").asText();
+                    case "password" -> basicAuthPassword = authParam.path("value").asText();
+                    default -> { }
+                }
+            }
+        }
+
+        String saveResponseAs = null;
+        for (JsonNode event : item.path("event")) {
+            if ("test".equals(event.path("listen").asText())) {
+                for (JsonNode line : event.path("script").path("exec")) {
+                    Matcher matcher = SAVE_RESPONSE_SCRIPT.matcher(line.asText());
+                    if (matcher.find()) {
+                        saveResponseAs = matcher.group(1);
+                    }
+                }
+            }
+        }
+
+        return new RequestTemplate(item.path("name").asText(), request.path("method").asText("GET"), rawUrl,
+                headers, request.path("body").path("raw").asText(""), basicAuthUsername, basicAuthPassword,
+                saveResponseAs);
+    }
+}
@@ -0,0 +1,34 @@
+package org.dmship.loadtest;
+
+import java.util.Map;
+
+/** Single request of the postman collection, with '{{variable}}' placeholders not yet resolved.
+ *
+ * @param name request name, also used as endpoint name in the load test report
+ * @param method http method
+ * @param url url
+ * @param headers request headers
+ * @param body raw request body, empty if none
+ * @param basicAuthUsername username for basic auth, null if request is sent without auth
+ * @param basicAuthPassword password for basic auth, null if request is sent without auth
+ * @param saveResponseAs name of the variable the response body is stored to, for the requests which follow
+ *                       (set in the collection by test script 'pm.collectionVariables.set(name, pm.response.text())'),
+ *                       null if response is not stored
+ */
+public record RequestTemplate(
+
+    String name,
+
+    String method,
+
+    String url,
+
+    Map<String, String> headers,
+
+    String body,
+
+    String basicAuthUsername,
+
+    String basicAuthPassword,
+
+    String saveResponseAs) {}
@@ -0,0 +1,128 @@
+package org.dmship.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Executes randomly picked (weighted) scenarios against the app, recording latency of every request.
+ * Requests of a scenario are sent one after another, the next one is sent when the previous one completes.
+ * A scenario is aborted when one of its requests fails, as the following requests usually depend on it.
+ */
+public class ScenarioRunner {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final PostmanCollection collection;
+    private final Map<String, String> variables;
+    private final List<LoadTestScenarios.Scenario> scenarios;
+    private final int[] cumulativeWeights;
+    private final LatencyStats latencyStats;
+
+    private volatile boolean recording;
+
+    public ScenarioRunner(HttpClient httpClient, PostmanCollection collection, Map<String, String> variables,
+                          LoadTestScenarios loadTestScenarios, LatencyStats latencyStats) {
+        this.httpClient = httpClient;
+        this.collection = collection;
+        this.variables = variables;
+        this.scenarios = loadTestScenarios.scenarios();
+        this.latencyStats = latencyStats;
+
+        cumulativeWeights = new int[scenarios.size()];
+        int weightSum = 0;
+        for (int i = 0; i < scenarios.size(); i++) {
+            LoadTestScenarios.Scenario scenario = scenarios.get(i);
+            scenario.requests().forEach(collection::request); // fail fast on unknown request names
+            weightSum += scenario.weight();
+            cumulativeWeights[i] = weightSum;
+        }
+
+        if (weightSum <= 0) {
+            throw new IllegalArgumentException("At least one scenario with positive weight is required");
+        }
+    }
+
+    /** Latencies are recorded only after warmup, when recording is switched on. */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    public CompletableFuture<Void> runRandomScenario() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= pick) {
+            index++;
+        }
+
+        Map<String, String> scenarioVariables = new HashMap<>(variables);
+        CompletableFuture<Boolean> previous = CompletableFuture.completedFuture(true);
+
+        for (String requestName : scenarios.get(index).requests()) {
+            RequestTemplate template = collection.request(requestName);
+            previous = previous.thenCompose(success -> success ?
+                    send(template, scenarioVariables) : CompletableFuture.completedFuture(false));
+        }
+
+        return previous.thenAccept(success -> { });
+    }
+
+    private CompletableFuture<Boolean> send(RequestTemplate template, Map<String, String> scenarioVariables) {
+        HttpRequest request;
+
+        try {
+            request = toHttpRequest(template, scenarioVariables);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long start = System.nanoTime();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, exception) -> {
+                    long latency = System.nanoTime() - start;
+                    boolean success = exception == null && response.statusCode() / 100 == 2;
+
+                    if (recording) {
+                        latencyStats.record(template.name(), latency, success);
+                    }
+
+                    if (success && template.saveResponseAs() != null) {
+                        scenarioVariables.put(template.saveResponseAs(), response.body().trim());
+                    }
+
+                    return success;
+                });
+    }
+
+    private static HttpRequest toHttpRequest(RequestTemplate template, Map<String, String> scenarioVariables) {
+        String body = TemplateResolver.resolve(template.body(), scenarioVariables);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(TemplateResolver.resolve(template.url(), scenarioVariables)))
+                .timeout(REQUEST_TIMEOUT)
+                .method(template.method(), body.isEmpty() ?
+                        HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+
+        template.headers().forEach((key, value) ->
+                builder.header(key, TemplateResolver.resolve(value, scenarioVariables)));
+
+        if (template.basicAuthUsername() != null) {
+            String credentials = template.basicAuthUsername() + ":" + template.basicAuthPassword();
+            builder.header("Authorization",
+                    "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,66 @@
+package org.dmship.loadtest;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves '{{variable}}' placeholders the way postman does: collection/scenario variables and
+ * the dynamic variables used by the collection ('{{$guid}}', '{{$randomFirstName}}', ...).
+ */
+public final class TemplateResolver {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{([^{}]+)}}");
+
+    private static final String[] FIRST_NAMES = {
+            "Jan", "Laura", "Pieter", "Sanne", "Daan", "Emma", "Lucas", "Julia", "Sem", "Tess"};
+    private static final String[] LAST_NAMES = {
+            "Jansen", "de Vries", "van Dijk", "Bakker", "Visser", "Smit", "Meijer", "de Boer", "Mulder", "Ramos"};
+    private static final String[] STREETS = {
+            "Damstraat", "Kalverhoeve", "Begijnekade", "Tweede Palensteinhof", "Oudegracht"};
+
+    private TemplateResolver() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if template contains an unknown variable
+     */
+    public static String resolve(String template, Map<String, String> variables) {
+        if (template == null || !template.contains("{{")) {
+            return template;
+        }
+
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder resolved = new StringBuilder();
+
+        while (matcher.find()) {
+            String name = matcher.group(1).trim();
+            String value = name.startsWith("$") ? dynamicValue(name) : variables.get(name);
+
+            if (value == null) {
+                throw new IllegalArgumentException("Unknown variable '" + name + "' in '" + template + "'");
+            }
+
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(value));
+        }
+
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    private static String dynamicValue(String name) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return switch (name) {
+            case "$guid", "$randomUUID" -> UUID.randomUUID().toString();
+            case "$timestamp" -> Long.toString(System.currentTimeMillis() / 1000);
+            case "$randomInt" -> Integer.toString(random.nextInt(1001));
+            case "$randomFirstName" -> FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            case "$randomLastName" -> LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            case "$randomStreetAddress" -> STREETS[random.nextInt(STREETS.length)] + " " + (1 + random.nextInt(200));
+            default -> null;
+        };
+    }
+}
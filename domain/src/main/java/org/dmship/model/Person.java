@@ -5,11 +5,20 @@ import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.time.LocalDate;
 import java.util.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Person.CACHE_REGION)
 @Table(name = "person",
         uniqueConstraints = @UniqueConstraint(columnNames={"first_name", "last_name"}))
 @Data
@@ -17,8 +26,25 @@ import java.util.*;
 @AllArgsConstructor
 public class Person {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    public static final String CACHE_REGION = "person";
+    public static final String PERSON_PETS_CACHE_REGION = "person.personPets";
+    public static final String PERSON_PETS_ROLE = "org.dmship.model.Person.personPets";
+
+    /**
+     * Ids are allocated in blocks of {@link #ID_ALLOCATION_SIZE} from 'person_id_seq' sequence (pooled-lo),
+     * which, unlike db identity columns, allows hibernate to batch inserts. The sequence is read on the connection
+     * of the inserting transaction. On dbs without sequences (mysql) it's emulated by a table, which is read
+     * on another pool connection, so services limit concurrent inserting transactions below the pool size.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "person_id_generator")
+    @GenericGenerator(name = "person_id_generator", type = SequenceStyleGenerator.class, parameters = {
+            @Parameter(name = "sequence_name", value = "person_id_seq"),
+            @Parameter(name = "initial_value", value = "1"),
+            @Parameter(name = "increment_size", value = "" + ID_ALLOCATION_SIZE),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     private Long id;
 
     @Column(nullable = false)
@@ -35,9 +61,22 @@ public class Person {
     @Size(max = 300)
     private String address;
 
+    /**
+     * Incremented on each update (optimistic locking), exposed to clients as the person's entity tag.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // pets are not part of the person's representation, so linking/unlinking a pet doesn't change its version.
+    // links are read-only here: they are inserted and deleted as PersonPet rows, without initializing the collection
     @OneToMany(cascade = CascadeType.ALL,
             orphanRemoval = true)
-    @JoinColumn(name = "person_id", referencedColumnName = "id")
+    @OptimisticLock(excluded = true)
+    @ToString.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = PERSON_PETS_CACHE_REGION)
+    @JoinColumn(name = "person_id", referencedColumnName = "id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = PersonPet.PERSON_FOREIGN_KEY))
     private List<PersonPet> personPets = new ArrayList<>();
 
     public static String createFullName(String firstName, String lastName) {
@@ -61,30 +100,8 @@ public class Person {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getFullName());
-    }
-
-    public PersonPet addPet(Pet pet) {
-        PersonPet personPet = new PersonPet(this, pet);
-        personPets.add(personPet);
-        return personPet;
-    }
-
-    public PersonPet removePet(Pet pet) {
-        PersonPet personPet = null;
-
-        for (Iterator<PersonPet> iterator = personPets.iterator(); iterator.hasNext(); ) {
-            personPet = iterator.next();
-
-            if (personPet.getPet() == pet) {
-                personPet.setPet(null);
-
-                iterator.remove();
-                return personPet;
-            }
-        }
-
-        return personPet;
+        // same fields as equals, without building the full name (or a varargs array) on each call
+        return 31 * Objects.hashCode(firstName) + Objects.hashCode(lastName);
     }
 
     public void update(PersonUpdate personUpdate) {
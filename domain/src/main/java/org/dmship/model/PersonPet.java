@@ -1,18 +1,34 @@
 package org.dmship.model;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.springframework.data.domain.Persistable;
 
 import java.util.Objects;
 
 @Entity
-@Table(name = "person_pet")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = PersonPet.CACHE_REGION)
+@Table(name = "person_pet",
+        uniqueConstraints = @UniqueConstraint(name = PersonPet.PERSON_INDEX, columnNames = {"person_id", "pet_id"}))
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
-public class PersonPet {
+public class PersonPet implements Persistable<Long> {
+
+    public static final String CACHE_REGION = "personPet";
+
+    /** Foreign key names, same as in 'init_db.sql', so that violations can be told apart. */
+    public static final String PERSON_FOREIGN_KEY = "person_pet_fk_person_id";
+    public static final String PET_FOREIGN_KEY = "person_pet_fk_pet_id";
+
+    /**
+     * Index of person's pets (pet ids ordered), as in 'init_db.sql'. Declared as unique constraint, which is
+     * supported inside CREATE TABLE by both h2 and mySql (pet_id alone is unique already).
+     */
+    public static final String PERSON_INDEX = "person_pet_idx_person_id_pet_id";
 
     @Id
     @Column(name = "pet_id")
@@ -21,22 +37,51 @@ public class PersonPet {
     @Column(name = "person_id")
     private Long personId;
 
-    @OneToOne
+    // lazy, links are mostly read for their ids only
+    @OneToOne(fetch = FetchType.LAZY)
     @MapsId
+    @JoinColumn(name = "pet_id", foreignKey = @ForeignKey(name = PET_FOREIGN_KEY))
     private Pet pet;
 
-    public PersonPet(Person person, Pet pet) {
-        this.petId = pet.getId();
-        this.personId = person.getId();
+    /**
+     * Id (pet id) is always assigned before saving, so it can't be used to tell new links from existing ones.
+     * Tracking it explicitly lets the repository persist new links without selecting them first.
+     */
+    @Transient
+    private boolean newPersonPet = true;
+
+    public PersonPet(Long petId, Long personId, Pet pet) {
+        this.petId = petId;
+        this.personId = personId;
         this.pet = pet;
     }
 
+    public PersonPet(Person person, Pet pet) {
+        this(pet.getId(), person.getId(), pet);
+    }
+
+    @Override
+    public Long getId() {
+        return petId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newPersonPet;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newPersonPet = false;
+    }
+
     @Override
     public String toString() {
+        // pet is not included, it may not be loaded
         return "PersonPet {" +
                 "petId=" + petId + ", personId=" + personId +
-                "', pet='" + (pet != null ? pet.getName() : "null") +
-                "'}";
+                "}";
     }
 
     @Override
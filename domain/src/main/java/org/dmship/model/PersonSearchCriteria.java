@@ -16,7 +16,20 @@ public record PersonSearchCriteria(
      * If defined, results should include only persons whose last name matches the specified 'lastName' value.
      * If null or optional is empty, ignore this filter criteria.
      */
-    Optional<String> lastName) {
+    Optional<String> lastName,
+
+    /**
+     * Keyset pagination: if defined, results should include only persons whose id is greater than
+     * the specified 'afterId' value (the id of the last person on the previous page).
+     * If null or optional is empty, start from the first person.
+     */
+    Optional<Long> afterId,
+
+    /**
+     * If defined, results should include at most 'limit' persons, ordered by id.
+     * If null or optional is empty, include all matching persons.
+     */
+    Optional<Integer> limit) {
 
     @Builder(toBuilder = true)
     public PersonSearchCriteria {}
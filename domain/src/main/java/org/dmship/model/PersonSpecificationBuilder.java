@@ -8,7 +8,8 @@ public final class PersonSpecificationBuilder {
 
     public static Specification<Person> createPersonSpecification(PersonSearchCriteria personSearchCriteria) {
         return firstNameEqualTo(personSearchCriteria.firstName())
-                .and(lastNameEqualTo(personSearchCriteria.lastName()));
+                .and(lastNameEqualTo(personSearchCriteria.lastName()))
+                .and(idGreaterThan(personSearchCriteria.afterId()));
     }
 
     public static Specification<Person> firstNameEqualTo(Optional<String> firstName) {
@@ -34,4 +35,16 @@ public final class PersonSpecificationBuilder {
                     .orElse(null);
         };
     }
+
+    public static Specification<Person> idGreaterThan(Optional<Long> afterId) {
+        if (afterId == null) {
+            return (root, query, builder) -> null;
+        }
+
+        return (root, query, builder) -> {
+            return afterId
+                    .map(afterIdVal -> builder.greaterThan(root.get(Person_.id), afterIdVal))
+                    .orElse(null);
+        };
+    }
 }
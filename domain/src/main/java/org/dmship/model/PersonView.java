@@ -0,0 +1,31 @@
+package org.dmship.model;
+
+import java.time.LocalDate;
+
+/** Read-only projection of a person, holding only the columns needed to build the person DTO.
+ *
+ * @param id person id
+ * @param firstName first name
+ * @param lastName last name
+ * @param dateOfBirth date of birth
+ * @param address address
+ * @param version version of the person, its entity tag (null if not selected, e.g. in lists of persons)
+ */
+public record PersonView(
+
+    Long id,
+
+    String firstName,
+
+    String lastName,
+
+    LocalDate dateOfBirth,
+
+    String address,
+
+    Long version) {
+
+    public PersonView(Long id, String firstName, String lastName, LocalDate dateOfBirth, String address) {
+        this(id, firstName, lastName, dateOfBirth, address, null);
+    }
+}
@@ -8,18 +8,38 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Pet.CACHE_REGION)
 @Table(name = "pet")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Pet {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    public static final String CACHE_REGION = "pet";
+
+    /**
+     * Ids are allocated in blocks of {@link #ID_ALLOCATION_SIZE} from 'pet_id_seq' sequence (pooled-lo),
+     * the same way as person ids (see id of {@link Person}).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pet_id_generator")
+    @GenericGenerator(name = "pet_id_generator", type = SequenceStyleGenerator.class, parameters = {
+            @Parameter(name = "sequence_name", value = "pet_id_seq"),
+            @Parameter(name = "initial_value", value = "1"),
+            @Parameter(name = "increment_size", value = "" + ID_ALLOCATION_SIZE),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     private Long id;
 
     @NotNull(message = "cannot be empty.")
@@ -30,6 +50,13 @@ public class Pet {
     @DecimalMax(value = "199")
     private Integer age;
 
+    /**
+     * Incremented on each update (optimistic locking), exposed to clients as the pet's entity tag.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public Pet(String name, Integer age) {
         this.name = name;
         this.age = age;
@@ -53,6 +80,6 @@ public class Pet {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return Objects.hashCode(name);
     }
 }
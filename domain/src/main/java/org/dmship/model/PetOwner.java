@@ -0,0 +1,12 @@
+package org.dmship.model;
+
+/** Link between a pet and its owner (person), as stored in 'person_pet' table.
+ *
+ * @param petId pet id
+ * @param personId id of the person owning the pet
+ */
+public record PetOwner(
+
+    Long petId,
+
+    Long personId) {}
@@ -0,0 +1,23 @@
+package org.dmship.model;
+
+/** Read-only projection of a pet, holding only the columns needed to build the pet DTO.
+ *
+ * @param id pet id
+ * @param name name
+ * @param age age
+ * @param version version of the pet, its entity tag (null if not selected, e.g. in lists of pets)
+ */
+public record PetView(
+
+    Long id,
+
+    String name,
+
+    Integer age,
+
+    Long version) {
+
+    public PetView(Long id, String name, Integer age) {
+        this(id, name, age, null);
+    }
+}
@@ -0,0 +1,13 @@
+package org.dmship.repository;
+
+/**
+ * Id-only read path for person's pets. Answered from the person_pet (person_id, pet_id) index alone,
+ * neither PersonPet entities nor their pets are loaded.
+ */
+public interface PersonPetIdRepository {
+
+    /**
+     * @return ids of the person's pets, ascending, empty if the person has no pets or doesn't exist
+     */
+    long[] findPetIdArrayByPersonId(Long personId);
+}
@@ -0,0 +1,34 @@
+package org.dmship.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class PersonPetIdRepositoryImpl implements PersonPetIdRepository {
+
+    private static final String PET_IDS_BY_PERSON_ID_JPQL =
+            "select pp.petId from PersonPet pp where pp.personId = :personId order by pp.petId";
+
+    private final EntityManager entityManager;
+
+    /**
+     * Selects only the pet id column, so neither PersonPet entities nor their pets are loaded.
+     * Pending links of the person are flushed first, as by any query.
+     */
+    @Override
+    public long[] findPetIdArrayByPersonId(Long personId) {
+        List<Long> petIds = entityManager.createQuery(PET_IDS_BY_PERSON_ID_JPQL, Long.class)
+                .setParameter("personId", personId)
+                .getResultList();
+
+        long[] petIdArray = new long[petIds.size()];
+
+        for (int i = 0; i < petIdArray.length; i++) {
+            petIdArray[i] = petIds.get(i);
+        }
+
+        return petIdArray;
+    }
+}
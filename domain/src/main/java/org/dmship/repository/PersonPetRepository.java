@@ -1,17 +1,51 @@
 package org.dmship.repository;
 
+import jakarta.persistence.QueryHint;
 import org.dmship.model.PersonPet;
+import org.dmship.model.PetOwner;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
 
 @Repository
-public interface PersonPetRepository extends JpaRepository<PersonPet, Long> {
+public interface PersonPetRepository extends JpaRepository<PersonPet, Long>, PersonPetIdRepository {
 
-    Optional<PersonPet> findByPersonIdAndPetId(Long personId, Long petId);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select new org.dmship.model.PetOwner(pp.petId, pp.personId) from PersonPet pp " +
+            "where pp.petId in :petIds order by pp.petId")
+    List<PetOwner> findOwnersByPetIdIn(@Param("petIds") Collection<Long> petIds);
 
-    List<PersonPet> findByPersonId(Long personId);
-}
\ No newline at end of file
+    @Query("select new org.dmship.model.PetOwner(pp.petId, pp.personId) from PersonPet pp " +
+            "where pp.personId in :personIds order by pp.petId")
+    List<PetOwner> findOwnersByPersonIdIn(@Param("personIds") Collection<Long> personIds);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select pp.petId from PersonPet pp where pp.personId = :personId and pp.petId in :petIds")
+    List<Long> findPetIdsByPersonIdAndPetIdIn(@Param("personId") Long personId,
+                                              @Param("petIds") Collection<Long> petIds);
+
+    /**
+     * @return number of deleted links, 0 if the pet is not linked to the person
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from PersonPet pp where pp.personId = :personId and pp.petId = :petId")
+    int deleteByPersonIdAndPetId(@Param("personId") Long personId, @Param("petId") Long petId);
+
+    /**
+     * @return number of deleted links of the person
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from PersonPet pp where pp.personId = :personId")
+    int deleteByPersonId(@Param("personId") Long personId);
+}
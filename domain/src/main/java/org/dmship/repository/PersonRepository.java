@@ -2,18 +2,32 @@ package org.dmship.repository;
 
 import jakarta.annotation.Nullable;
 import org.dmship.model.Person;
+import org.dmship.model.PersonView;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PersonRepository extends JpaRepository<Person, Long>, JpaSpecificationExecutor<Person> {
+public interface PersonRepository extends JpaRepository<Person, Long>, JpaSpecificationExecutor<Person>,
+        PersonViewRepository {
 
-    Optional<Person> findByFirstNameAndLastName(String firstName, String lastName);
+    /**
+     * Superset lookup for many (first name, last name) pairs in one query,
+     * callers have to match the exact pairs on the returned persons.
+     */
+    List<Person> findByFirstNameInAndLastNameIn(Collection<String> firstNames, Collection<String> lastNames);
 
     List<Person> findAll(@Nullable Specification<Person> personSpecification);
+
+    @Query("select new org.dmship.model.PersonView(p.id, p.firstName, p.lastName, p.dateOfBirth, p.address, " +
+            "p.version) " +
+            "from Person p where p.id = :id")
+    Optional<PersonView> findViewById(@Param("id") Long id);
 }
\ No newline at end of file
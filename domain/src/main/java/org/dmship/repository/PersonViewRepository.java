@@ -0,0 +1,22 @@
+package org.dmship.repository;
+
+import org.dmship.model.Person;
+import org.dmship.model.PersonView;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read path for persons, selecting {@link PersonView} projections instead of managed entities,
+ * so hibernate neither keeps loaded persons in the persistence context nor snapshots them for dirty checking.
+ */
+public interface PersonViewRepository {
+
+    /**
+     * @param personSpecification filter, may be null
+     * @param limit max number of returned persons, no limit if empty
+     * @return persons matching the filter, ordered by id
+     */
+    List<PersonView> findViews(Specification<Person> personSpecification, Optional<Integer> limit);
+}
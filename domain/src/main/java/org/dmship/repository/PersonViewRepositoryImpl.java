@@ -0,0 +1,50 @@
+package org.dmship.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.dmship.model.Person;
+import org.dmship.model.PersonView;
+import org.dmship.model.Person_;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+class PersonViewRepositoryImpl implements PersonViewRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<PersonView> findViews(Specification<Person> personSpecification, Optional<Integer> limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PersonView> query = builder.createQuery(PersonView.class);
+        Root<Person> root = query.from(Person.class);
+
+        query.select(builder.construct(PersonView.class,
+                root.get(Person_.id),
+                root.get(Person_.firstName),
+                root.get(Person_.lastName),
+                root.get(Person_.dateOfBirth),
+                root.get(Person_.address)));
+
+        Predicate predicate = personSpecification != null ?
+                personSpecification.toPredicate(root, query, builder) : null;
+
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        query.orderBy(builder.asc(root.get(Person_.id)));
+
+        TypedQuery<PersonView> typedQuery = entityManager.createQuery(query);
+        limit.ifPresent(typedQuery::setMaxResults);
+
+        return typedQuery.getResultList();
+    }
+}
@@ -1,13 +1,43 @@
 package org.dmship.repository;
 
+import jakarta.persistence.QueryHint;
 import org.dmship.model.Pet;
+import org.dmship.model.PetView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface PetRepository extends JpaRepository<Pet, Long> {
 
+    /** Number of rows fetched from db per round trip when streaming pets. */
+    String STREAM_FETCH_SIZE = "500";
+
     Optional<Pet> findByName(String name);
+
+    @Query("select p.id from Pet p where p.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new org.dmship.model.PetView(p.id, p.name, p.age, p.version) from Pet p where p.id = :id")
+    Optional<PetView> findViewById(@Param("id") Long id);
+
+    @Query("select new org.dmship.model.PetView(p.id, p.name, p.age) from Pet p order by p.id")
+    List<PetView> findAllViews();
+
+    /**
+     * Streams all pets ordered by id, fetching {@link #STREAM_FETCH_SIZE} rows per round trip.
+     * Must be called inside a transaction and the returned stream must be closed.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select new org.dmship.model.PetView(p.id, p.name, p.age) from Pet p order by p.id")
+    Stream<PetView> streamAllViews();
 }
@@ -0,0 +1,61 @@
+package org.dmship.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Builder;
+
+/** Result of a single item of a batch request.
+ *
+ * @param index position of the item in the batch request
+ * @param id id of the created/deleted resource, null if creation failed
+ * @param status outcome of the item
+ * @param error error message, null if the item succeeded
+ */
+public record BatchItemResultDTO(
+
+    int index,
+
+    Long id,
+
+    Status status,
+
+    String error) {
+
+    public enum Status {
+        CREATED,
+        DELETED,
+        CONFLICT,
+        ERROR
+    }
+
+    @Builder(toBuilder = true)
+    public BatchItemResultDTO {}
+
+    public static BatchItemResultDTO created(int index, Long id) {
+        return new BatchItemResultDTO(index, id, Status.CREATED, null);
+    }
+
+    public static BatchItemResultDTO deleted(int index, Long id) {
+        return new BatchItemResultDTO(index, id, Status.DELETED, null);
+    }
+
+    public static BatchItemResultDTO conflict(int index, String error) {
+        return conflict(index, null, error);
+    }
+
+    public static BatchItemResultDTO conflict(int index, Long id, String error) {
+        return new BatchItemResultDTO(index, id, Status.CONFLICT, error);
+    }
+
+    public static BatchItemResultDTO error(int index, String error) {
+        return error(index, null, error);
+    }
+
+    public static BatchItemResultDTO error(int index, Long id, String error) {
+        return new BatchItemResultDTO(index, id, Status.ERROR, error);
+    }
+
+    @JsonIgnore
+    public boolean isSuccess() {
+        return status == Status.CREATED || status == Status.DELETED;
+    }
+}
@@ -1,11 +1,13 @@
 package org.dmship.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 import jakarta.validation.constraints.*;
 import lombok.Builder;
 
 import java.time.LocalDate;
+import java.util.List;
 
 public record PersonDTO (
 
@@ -24,9 +26,17 @@ public record PersonDTO (
 
         @NotBlank(message = "cannot be empty.")
         @Size(max = 300, message = "address cannot contain more than 300 characters.")
-        String address) {
+        String address,
+
+        // ids of the person's pets, only returned when requested (GET /persons?include=pets)
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        List<Long> petIds) {
 
     @Builder(toBuilder = true)
     public PersonDTO {}
+
+    public PersonDTO(String firstName, String lastName, LocalDate dateOfBirth, String address) {
+        this(firstName, lastName, dateOfBirth, address, null);
+    }
 }
 
@@ -0,0 +1,21 @@
+package org.dmship.dto;
+
+import lombok.Builder;
+
+/** Person found by name search.
+ *
+ * @param id person id
+ * @param firstName first name
+ * @param lastName last name
+ */
+public record PersonMatchDTO(
+
+    Long id,
+
+    String firstName,
+
+    String lastName) {
+
+    @Builder(toBuilder = true)
+    public PersonMatchDTO {}
+}
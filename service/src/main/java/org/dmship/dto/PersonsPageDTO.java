@@ -0,0 +1,21 @@
+package org.dmship.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/** Single page of persons, ordered by person id.
+ *
+ * @param persons persons on this page
+ * @param next opaque cursor to pass as 'cursor' request param to retrieve the next page,
+ *             null if this is the last page
+ */
+public record PersonsPageDTO(
+
+    List<PersonDTO> persons,
+
+    String next) {
+
+    @Builder(toBuilder = true)
+    public PersonsPageDTO {}
+}
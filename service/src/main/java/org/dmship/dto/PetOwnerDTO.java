@@ -0,0 +1,18 @@
+package org.dmship.dto;
+
+import lombok.Builder;
+
+/** Pet and its owner.
+ *
+ * @param petId pet id
+ * @param personId id of the person owning the pet, null if the pet has no owner
+ */
+public record PetOwnerDTO(
+
+    Long petId,
+
+    Long personId) {
+
+    @Builder(toBuilder = true)
+    public PetOwnerDTO {}
+}
@@ -1,17 +1,34 @@
 package org.dmship.dto;
 
-import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.Builder;
 
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * Ids of pets, a primitive array, so the person's pet ids are read and serialized without boxing them.
+ * Equality, hash code and string are those of the ids, not of the array reference.
+ */
 public record PetsDTO(
 
-    @Valid
     @NotEmpty(message = "list cannot be empty.")
-    List<Long> petIds) {
+    long[] petIds) {
 
     @Builder(toBuilder = true)
     public PetsDTO {}
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PetsDTO petsDTO && Arrays.equals(petIds, petsDTO.petIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(petIds);
+    }
+
+    @Override
+    public String toString() {
+        return "PetsDTO[petIds=" + Arrays.toString(petIds) + "]";
+    }
 }
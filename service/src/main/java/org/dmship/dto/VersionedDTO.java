@@ -0,0 +1,13 @@
+package org.dmship.dto;
+
+/** DTO together with the version of the entity it was read from, cached and returned as one value,
+ * so that the entity tag always matches the body it is sent with.
+ *
+ * @param dto person/pet DTO
+ * @param version version of the person/pet, its entity tag
+ */
+public record VersionedDTO<T>(
+
+    T dto,
+
+    Long version) {}
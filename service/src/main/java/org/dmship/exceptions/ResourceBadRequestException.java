@@ -0,0 +1,8 @@
+package org.dmship.exceptions;
+
+public class ResourceBadRequestException extends RuntimeException {
+
+    public ResourceBadRequestException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,8 @@
+package org.dmship.exceptions;
+
+public class ResourcePreconditionFailedException extends RuntimeException {
+
+    public ResourcePreconditionFailedException(String errorMessage) {
+        super(errorMessage);
+    }
+}
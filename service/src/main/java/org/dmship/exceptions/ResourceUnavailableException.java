@@ -0,0 +1,15 @@
+package org.dmship.exceptions;
+
+public class ResourceUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ResourceUnavailableException(String errorMessage, long retryAfterSeconds) {
+        super(errorMessage);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
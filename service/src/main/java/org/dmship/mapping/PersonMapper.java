@@ -2,6 +2,7 @@ package org.dmship.mapping;
 
 import org.dmship.dto.PersonDTO;
 import org.dmship.model.Person;
+import org.dmship.model.PersonView;
 import org.mapstruct.*;
 
 @Mapper(componentModel = "spring",
@@ -11,7 +12,12 @@ public interface PersonMapper {
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "personPets", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Person toEntity(PersonDTO personDTO);
 
+    @Mapping(target = "petIds", ignore = true)
     PersonDTO toDTO(Person person);
+
+    @Mapping(target = "petIds", ignore = true)
+    PersonDTO toDTO(PersonView personView);
 }
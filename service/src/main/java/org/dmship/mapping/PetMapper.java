@@ -2,6 +2,7 @@ package org.dmship.mapping;
 
 import org.dmship.dto.PetDTO;
 import org.dmship.model.Pet;
+import org.dmship.model.PetView;
 import org.mapstruct.CollectionMappingStrategy;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -12,7 +13,10 @@ import org.mapstruct.Mapping;
 public interface PetMapper {
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Pet toEntity(PetDTO personDTO);
 
     PetDTO toDTO(Pet person);
+
+    PetDTO toDTO(PetView petView);
 }
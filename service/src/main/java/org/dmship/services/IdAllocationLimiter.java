@@ -0,0 +1,79 @@
+package org.dmship.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.dmship.exceptions.ResourceInternalException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent transactions inserting persons/pets on dbs without sequences (mysql).
+ * Their blocks of ids are then allocated from a table on a second pool connection while the inserting transaction
+ * holds its own, so if all pool connections were held by inserting transactions, none of them could allocate ids.
+ * At most 'spring.datasource.hikari.maximum-pool-size' - 1 inserting transactions run concurrently, which leaves
+ * a connection for the allocation. On dbs with sequences, ids are allocated on the transaction's own connection
+ * and inserts are not limited.
+ */
+@Service
+public class IdAllocationLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdAllocationLimiter.class);
+
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    public IdAllocationLimiter(EntityManagerFactory entityManagerFactory,
+                               @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxPoolSize,
+                               @Value("${spring.datasource.hikari.connection-timeout:30000}") long timeoutMillis) {
+        boolean sequences = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices()
+                .getDialect().getSequenceSupport().supportsSequences();
+
+        this.permits = sequences ? null : new Semaphore(Math.max(maxPoolSize - 1, 1), true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Executes the inserting transaction once fewer than the maximum inserting transactions are running.
+     * Must be called before the transaction starts (before it gets a pool connection). Called within an existing
+     * transaction, it executes right away, the caller starting that transaction is responsible for limiting it.
+     *
+     * @return result of the transaction
+     * @throws ResourceInternalException if the limit isn't freed within the pool's connection timeout
+     */
+    public <R> R execute(Supplier<R> transaction) {
+        if (permits == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transaction.get();
+        }
+
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("Could not start inserting transaction within {} ms, too many concurrent inserts",
+                        timeoutMillis);
+                throw new ResourceInternalException("Could not insert, too many concurrent inserts");
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceInternalException("Could not insert, interrupted while waiting for concurrent inserts");
+        }
+
+        try {
+            return transaction.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void execute(Runnable transaction) {
+        execute(() -> {
+            transaction.run();
+            return null;
+        });
+    }
+}
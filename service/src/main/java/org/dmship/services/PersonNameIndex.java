@@ -0,0 +1,368 @@
+package org.dmship.services;
+
+import jakarta.annotation.PostConstruct;
+import org.dmship.dto.PersonMatchDTO;
+import org.dmship.model.PersonSpecificationBuilder;
+import org.dmship.model.PersonView;
+import org.dmship.repository.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of person names, serving type-ahead search without scanning the person table
+ * (a 'LIKE %x%' filter can't use a db index).
+ * Names are split into words, lowercase and without diacritics. Words are kept sorted for prefix lookups,
+ * and indexed by their first letter and trigrams to find candidates for typo tolerant lookups, which are then
+ * verified by edit distance (at most 1 typo in words of 4 to 7 characters, 2 typos in longer words, the first
+ * letter must match).
+ * The index is loaded from db at startup and updated after each committed create/update/delete of a person
+ * by this application instance. Updates are serialized, searches don't wait for them.
+ */
+@Service
+public class PersonNameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonNameIndex.class);
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[\\s\\-'.,]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}");
+    private static final String TRIGRAM_PADDING = "  ";
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MIN_TWO_TYPOS_LENGTH = 8;
+    private static final Comparator<ScoredName> RANKING = Comparator.comparingDouble(ScoredName::score).reversed()
+            .thenComparing(scoredName -> scoredName.personName().fullName())
+            .thenComparing(ScoredName::personId);
+
+    private final PersonRepository personRepository;
+
+    private final Map<Long, PersonName> namesById = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, Set<Long>> idsByWord = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> wordsByTrigram = new ConcurrentHashMap<>();
+
+    @Value("${pepe.batch.size:500}")
+    private int batchSize;
+
+    public PersonNameIndex(PersonRepository personRepository) {
+        this.personRepository = personRepository;
+    }
+
+    /**
+     * Replaces the content of the index with the names of all persons in db, read in chunks of 'pepe.batch.size'.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        namesById.keySet().forEach(this::remove);
+
+        Optional<Long> afterId = Optional.empty();
+        List<PersonView> persons;
+
+        do {
+            persons = personRepository.findViews(PersonSpecificationBuilder.idGreaterThan(afterId),
+                    Optional.of(batchSize));
+            persons.forEach(person -> put(person.id(), person.firstName(), person.lastName()));
+
+            if (!persons.isEmpty()) {
+                afterId = Optional.of(persons.get(persons.size() - 1).id());
+            }
+        } while (persons.size() == batchSize);
+
+        logger.info("indexed names of {} persons", namesById.size());
+    }
+
+    /**
+     * Persons whose names match all words of the query, each query word either as prefix of a name word
+     * or with typos. Best matches first: exact words, then prefixes covering more of the word, then typos.
+     */
+    public List<PersonMatchDTO> search(String query, int limit) {
+        List<String> queryWords = toWords(query);
+
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map<String, Double>> matchingWords = queryWords.stream()
+                .map(queryWord -> matchWords(queryWord, limit))
+                .toList();
+
+        // persons matching the most selective query word are candidates, checked against the other query words
+        Map<String, Double> candidateWords = matchingWords.stream()
+                .min(Comparator.comparingInt(this::countPersons))
+                .get();
+
+        Set<Long> candidateIds = new HashSet<>();
+        PriorityQueue<ScoredName> bestMatches = new PriorityQueue<>(limit + 1, RANKING.reversed());
+
+        for (String candidateWord : candidateWords.keySet()) {
+            for (Long personId : idsByWord.getOrDefault(candidateWord, Set.of())) {
+                PersonName personName = namesById.get(personId);
+
+                if (personName == null || !candidateIds.add(personId)) {
+                    continue;
+                }
+
+                double score = score(personName, matchingWords);
+
+                if (score > 0) {
+                    bestMatches.add(new ScoredName(personId, personName, score));
+
+                    if (bestMatches.size() > limit) {
+                        bestMatches.poll();
+                    }
+                }
+            }
+        }
+
+        return bestMatches.stream()
+                .sorted(RANKING)
+                .map(scoredName -> new PersonMatchDTO(scoredName.personId(),
+                        scoredName.personName().firstName(), scoredName.personName().lastName()))
+                .toList();
+    }
+
+    /**
+     * Indexes the person once the current transaction commits (immediately, if there is none).
+     */
+    public void putAfterCommit(Long personId, String firstName, String lastName) {
+        afterCommit(() -> put(personId, firstName, lastName));
+    }
+
+    /**
+     * Removes the person from the index once the current transaction commits (immediately, if there is none).
+     */
+    public void removeAfterCommit(Long personId) {
+        afterCommit(() -> remove(personId));
+    }
+
+    private synchronized void put(Long personId, String firstName, String lastName) {
+        remove(personId);
+
+        String fullName = firstName + " " + lastName;
+        PersonName personName = new PersonName(firstName, lastName, fullName, toWords(fullName));
+        namesById.put(personId, personName);
+
+        for (String word : personName.words()) {
+            Set<Long> personIds = idsByWord.get(word);
+
+            if (personIds == null) {
+                personIds = ConcurrentHashMap.newKeySet();
+                idsByWord.put(word, personIds);
+                toTrigrams(word).forEach(trigram -> wordsByTrigram
+                        .computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet())
+                        .add(word));
+            }
+
+            personIds.add(personId);
+        }
+    }
+
+    private synchronized void remove(Long personId) {
+        PersonName personName = namesById.remove(personId);
+
+        if (personName == null) {
+            return;
+        }
+
+        for (String word : personName.words()) {
+            Set<Long> personIds = idsByWord.get(word);
+            personIds.remove(personId);
+
+            if (personIds.isEmpty()) {
+                idsByWord.remove(word);
+                toTrigrams(word).forEach(trigram -> {
+                    Set<String> words = wordsByTrigram.get(trigram);
+                    words.remove(word);
+
+                    if (words.isEmpty()) {
+                        wordsByTrigram.remove(trigram);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Name words matching the query word, with their scores.
+     *
+     * @param typoLimit typos are looked up only if prefix matches cover fewer persons, a query word
+     *                  matching enough names as typed is most likely not misspelled
+     */
+    private Map<String, Double> matchWords(String queryWord, int typoLimit) {
+        Map<String, Double> matches = new HashMap<>();
+
+        idsByWord.subMap(queryWord, queryWord + Character.MAX_VALUE).keySet()
+                .forEach(word -> matches.put(word, score(queryWord, word, 0)));
+
+        if (queryWord.length() < MIN_FUZZY_LENGTH || countPersons(matches) >= typoLimit) {
+            return matches;
+        }
+
+        int maxTypos = queryWord.length() < MIN_TWO_TYPOS_LENGTH ? 1 : 2;
+        List<String> queryTrigrams = toTrigrams(queryWord);
+        Map<String, Integer> sharedTrigrams = new HashMap<>();
+
+        queryTrigrams.forEach(trigram -> wordsByTrigram.getOrDefault(trigram, Set.of())
+                .forEach(word -> sharedTrigrams.merge(word, 1, Integer::sum)));
+
+        // each typo changes at most 4 trigrams (transposition), fewer shared trigrams can't be within max typos
+        int minSharedTrigrams = Math.max(1, queryTrigrams.size() - 4 * maxTypos);
+
+        sharedTrigrams.forEach((word, shared) -> {
+            if (shared >= minSharedTrigrams && !matches.containsKey(word)) {
+                int typos = prefixDistance(queryWord, word, maxTypos);
+
+                if (typos <= maxTypos) {
+                    matches.put(word, score(queryWord, word, typos));
+                }
+            }
+        });
+
+        return matches;
+    }
+
+    private int countPersons(Map<String, Double> words) {
+        int persons = 0;
+
+        for (String word : words.keySet()) {
+            persons += idsByWord.getOrDefault(word, Set.of()).size();
+        }
+
+        return persons;
+    }
+
+    /**
+     * Sum of the best scores of the person's words for each query word, 0 if any query word doesn't match.
+     */
+    private static double score(PersonName personName, List<Map<String, Double>> matchingWords) {
+        double score = 0;
+
+        for (Map<String, Double> matches : matchingWords) {
+            double bestWordScore = 0;
+
+            for (String word : personName.words()) {
+                bestWordScore = Math.max(bestWordScore, matches.getOrDefault(word, 0.0));
+            }
+
+            if (bestWordScore == 0) {
+                return 0;
+            }
+
+            score += bestWordScore;
+        }
+
+        return score;
+    }
+
+    private static double score(String queryWord, String word, int typos) {
+        double coverage = (double) Math.min(queryWord.length(), word.length()) / word.length();
+        return (0.5 + 0.5 * coverage) / (1 + typos);
+    }
+
+    /**
+     * Smallest edit distance (optimal string alignment: insertions, deletions, substitutions and transpositions
+     * of adjacent characters) between the query word and any prefix of the word.
+     */
+    private static int prefixDistance(String queryWord, String word, int maxTypos) {
+        int columns = Math.min(word.length(), queryWord.length() + maxTypos);
+        int[] beforePreviousRow = new int[columns + 1];
+        int[] previousRow = new int[columns + 1];
+        int[] row = new int[columns + 1];
+
+        for (int column = 0; column <= columns; column++) {
+            previousRow[column] = column;
+        }
+
+        for (int queryIndex = 1; queryIndex <= queryWord.length(); queryIndex++) {
+            row[0] = queryIndex;
+            int rowMinimum = row[0];
+
+            for (int column = 1; column <= columns; column++) {
+                int substitution = queryWord.charAt(queryIndex - 1) == word.charAt(column - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previousRow[column] + 1, row[column - 1] + 1),
+                        previousRow[column - 1] + substitution);
+
+                if (queryIndex > 1 && column > 1 && queryWord.charAt(queryIndex - 1) == word.charAt(column - 2)
+                        && queryWord.charAt(queryIndex - 2) == word.charAt(column - 1)) {
+                    distance = Math.min(distance, beforePreviousRow[column - 2] + 1);
+                }
+
+                row[column] = distance;
+                rowMinimum = Math.min(rowMinimum, distance);
+            }
+
+            // distances only grow with further rows
+            if (rowMinimum > maxTypos) {
+                return rowMinimum;
+            }
+
+            int[] reusedRow = beforePreviousRow;
+            beforePreviousRow = previousRow;
+            previousRow = row;
+            row = reusedRow;
+        }
+
+        int distance = previousRow[0];
+        for (int column = 1; column <= columns; column++) {
+            distance = Math.min(distance, previousRow[column]);
+        }
+
+        return distance;
+    }
+
+    private static List<String> toWords(String text) {
+        if (text == null) {
+            return List.of();
+        }
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+
+        return WORD_SEPARATOR.splitAsStream(normalized)
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Trigrams of the word padded at the start only, so that all trigrams of a prefix are trigrams of the word.
+     * Each trigram is prefixed by the first letter of the word, so only words with the same first letter
+     * are counted for typo lookups.
+     */
+    private static List<String> toTrigrams(String word) {
+        String padded = TRIGRAM_PADDING + word;
+        List<String> trigrams = new ArrayList<>(word.length());
+
+        for (int i = 0; i < word.length(); i++) {
+            trigrams.add(word.charAt(0) + padded.substring(i, i + 3));
+        }
+
+        return trigrams;
+    }
+
+    private static void afterCommit(Runnable indexUpdate) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            indexUpdate.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                indexUpdate.run();
+            }
+        });
+    }
+
+    private record PersonName(String firstName, String lastName, String fullName, List<String> words) {}
+
+    private record ScoredName(Long personId, PersonName personName, double score) {}
+}
@@ -1,159 +1,357 @@
 package org.dmship.services;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.dmship.dto.BatchItemResultDTO;
+import org.dmship.dto.PetOwnerDTO;
 import org.dmship.dto.PetsDTO;
 import org.dmship.exceptions.ResourceConflictException;
 import org.dmship.exceptions.ResourceInternalException;
 import org.dmship.model.Person;
 import org.dmship.model.PersonPet;
 import org.dmship.model.Pet;
+import org.dmship.model.PetOwner;
 import org.dmship.repository.PersonPetRepository;
 import org.dmship.repository.PersonRepository;
 import org.dmship.repository.PetRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(ServiceMetrics.SERVICE_TIMER)
 public class PersonPetService {
 
     private static final Logger logger = LoggerFactory.getLogger(PersonPetService.class);
     private final PersonRepository personRepository;
     private final PetRepository petRepository;
     private final PersonPetRepository personPetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
 
+    @Value("${pepe.batch.size:500}")
+    private int batchSize;
+
+    /**
+     * Links the pet to the person with a single insert, neither the person, the pet nor the existing links
+     * are selected first. Missing person or pet and already linked pet are detected by the violated
+     * person_pet constraint (foreign keys, primary key) instead.
+     */
     @Transactional
     public void addPersonPet(Long personId, Long petId) {
         logger.debug("try add PersonPet: personId {}, petId {}", personId, petId);
 
-        Optional<PersonPet> personPetFound = personPetRepository.findByPersonIdAndPetId(personId, petId);
+        PersonPet personPet = new PersonPet(petId, personId, petRepository.getReferenceById(petId));
 
-        if (personPetFound.isPresent()) {
-            String errorMessage = "Person with id '" + personId + "' already has Pet with id '" + petId + "'";
-            logger.error("error {}, PersonPet:\n{}", errorMessage, personPetFound.get());
+        try {
+            logger.info("save PersonPet: personId {}, petId {}", personId, petId);
 
-            throw new ResourceConflictException(errorMessage);
+            personPetRepository.saveAndFlush(personPet);
+            evictPersonPetsFromSecondLevelCacheAfterCommit(personId);
+        } catch(org.springframework.dao.DataIntegrityViolationException e) {
+            logger.error("""
+                    DataIntegrityViolationException exception when trying to create personPet: personId {}, petId {}
+                    exception:{}""", personId, petId, e.getMessage());
+
+            throw new ResourceConflictException(createAddPersonPetErrorMessage(personId, petId, e));
+        } catch(Exception e) {
+            logger.error("""
+                    General exception when trying to create personPet: personId {}, petId {}
+                    exception:{}""", personId, petId, e.getMessage());
+
+            String errorMessage = "Could not add pet with Id " + petId +
+                    " to the person with Id " + personId + ", unexpected error";
+            throw new ResourceInternalException(errorMessage);
         }
+    }
 
-        Optional<Person> person = personRepository.findById(personId);
+    private String createAddPersonPetErrorMessage(Long personId, Long petId, DataIntegrityViolationException e) {
+        String constraintName = e.getCause() instanceof ConstraintViolationException constraintViolation &&
+                constraintViolation.getConstraintName() != null ?
+                constraintViolation.getConstraintName().toLowerCase() : "";
 
-        if (person.isEmpty()) {
-            String errorMessage = "Person with id '" + personId + "' does not exist";
-            logger.error("error {}", errorMessage);
+        if (constraintName.contains(PersonPet.PERSON_FOREIGN_KEY)) {
+            return "Person with id '" + personId + "' does not exist";
+        }
 
-            throw new ResourceConflictException(errorMessage);
+        if (constraintName.contains(PersonPet.PET_FOREIGN_KEY)) {
+            return createPetLinkConflictMessage(personId, petId, false, null);
         }
 
-        Optional<Pet> pet = petRepository.findById(petId);
+        // primary key (pet id), the pet is already linked. The failed insert is dropped, so that looking up
+        // the current owner doesn't flush it again
+        entityManager.clear();
+        List<PetOwner> petOwners = personPetRepository.findOwnersByPetIdIn(List.of(petId));
 
-        if (pet.isEmpty()) {
-            String errorMessage = "Pet with id '" + petId + "' does not exist";
-            logger.error("error {}", errorMessage);
+        if (petOwners.size() == 1) {
+            return createPetLinkConflictMessage(personId, petId, true, petOwners.get(0).personId());
+        }
 
-            throw new ResourceConflictException(errorMessage);
+        return "Could not add pet with Id " + petId + " to the person with Id " + personId + ", db error";
+    }
+
+    /**
+     * Conflict message of a pet which can't be linked to the person, the same for single and batch links.
+     *
+     * @param ownerId id of the person the pet is linked to, null if it isn't linked
+     */
+    private static String createPetLinkConflictMessage(Long personId, Long petId, boolean petExists, Long ownerId) {
+        if (!petExists) {
+            return "Pet with id '" + petId + "' does not exist";
         }
 
-        PersonPet personPet = person.get().addPet(pet.get());
+        if (personId.equals(ownerId)) {
+            return "Person with id '" + personId + "' already has Pet with id '" + petId + "'";
+        }
 
-        try {
-            logger.info("save Person {} with linked pet {}", person.get(), pet.get());
+        return "Pet with id '" + petId + "' is already linked to another person";
+    }
 
-            personRepository.saveAndFlush(person.get());
-        } catch(org.springframework.dao.DataIntegrityViolationException e) {
-            logger.error("""
-                    DataIntegrityViolationException exception when trying to create personPet:
-                    {}
-                    exception:{}""", personPet, e.getMessage());
+    /**
+     * Links many existing pets to the person, in chunks of 'pepe.batch.size' pets, each chunk in its own transaction.
+     * Existence of the pets and their current owners are checked with one query per chunk,
+     * new links are inserted using jdbc batching. Pets which don't exist, are already linked, or are listed
+     * more than once are reported as conflicts without failing the rest of the chunk.
+     * Must not be called within an existing transaction.
+     *
+     * @return result per pet, in the same order as the given pet ids
+     */
+    public List<BatchItemResultDTO> addPersonPets(Long personId, List<Long> petIds) {
+        logger.debug("try add {} PersonPets: personId {}", petIds.size(), personId);
+
+        if (!personRepository.existsById(personId)) {
+            String errorMessage = "Person with id '" + personId + "' does not exist";
+            logger.error("error {}", errorMessage);
 
-            // TODO: implement analysis into the exact cause of DataIntegrityViolationException exception
-            String errorMessage = "Could not add pet with Id " + petId +
-                    " to the person with Id " + personId + ", db error";
             throw new ResourceConflictException(errorMessage);
+        }
+
+        BatchItemResultDTO[] results = new BatchItemResultDTO[petIds.size()];
+        processInChunks(petIds, results, chunkIndexes -> addPersonPetsChunk(personId, petIds, chunkIndexes, results));
+        return Arrays.asList(results);
+    }
+
+    private void addPersonPetsChunk(Long personId, List<Long> petIds, List<Integer> chunkIndexes,
+                                    BatchItemResultDTO[] results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> chunkPetIds = chunkIndexes.stream().map(petIds::get).toList();
+
+                Set<Long> existingPetIds = new HashSet<>(petRepository.findIdsByIdIn(chunkPetIds));
+                Map<Long, Long> petOwners = personPetRepository.findOwnersByPetIdIn(chunkPetIds).stream()
+                        .collect(Collectors.toMap(PetOwner::petId, PetOwner::personId));
+
+                List<Integer> linkIndexes = new ArrayList<>(chunkIndexes.size());
+                List<PersonPet> personPets = new ArrayList<>(chunkIndexes.size());
+
+                for (Integer index : chunkIndexes) {
+                    Long petId = petIds.get(index);
+                    Long ownerId = petOwners.get(petId);
+
+                    boolean petExists = existingPetIds.contains(petId);
+
+                    if (!petExists || ownerId != null) {
+                        results[index] = BatchItemResultDTO.conflict(index, petId,
+                                createPetLinkConflictMessage(personId, petId, petExists, ownerId));
+                    } else {
+                        linkIndexes.add(index);
+                        personPets.add(new PersonPet(petId, personId, petRepository.getReferenceById(petId)));
+                    }
+                }
+
+                logger.debug("save {} PersonPets in batch: personId {}", personPets.size(), personId);
+                personPetRepository.saveAll(personPets);
+                personPetRepository.flush();
+
+                for (Integer index : linkIndexes) {
+                    results[index] = BatchItemResultDTO.created(index, petIds.get(index));
+                }
+            });
+
+            evictPersonPetsFromSecondLevelCache(personId);
+        } catch(DataIntegrityViolationException e) {
+            logger.warn("DataIntegrityViolationException exception when trying to add batch of {} pets " +
+                    "to the person with Id {}, retrying pets one by one\nexception:{}",
+                    chunkIndexes.size(), personId, e.getMessage());
+
+            for (Integer index : chunkIndexes) {
+                results[index] = addPersonPetInOwnTransaction(index, personId, petIds.get(index));
+            }
         } catch(Exception e) {
-            logger.error("""
-                    General exception when trying to create personPet:
-                    {}
-                    exception:{}""", personPet, e.getMessage());
+            logger.error("General exception when trying to add batch of {} pets to the person with Id {}" +
+                    "\nexception:{}", chunkIndexes.size(), personId, e.getMessage());
 
-            String errorMessage = "Could not add pet with Id " + petId +
-                    " to the person with Id " + personId + ", unexpected error";
-            throw new ResourceInternalException(errorMessage);
+            for (Integer index : chunkIndexes) {
+                results[index] = BatchItemResultDTO.error(index, petIds.get(index), "Could not add pet with Id "
+                        + petIds.get(index) + " to the person with Id " + personId + ", unexpected error");
+            }
         }
     }
 
-    @Transactional
-    public void removePersonPet(Long personId, Long petId) {
-        Optional<PersonPet> personPetFound = personPetRepository.findByPersonIdAndPetId(personId, petId);
-
-        if (personPetFound.isEmpty()) {
-            String errorMessage = "Person with id '" + personId + "' does not have Pet with id '" + petId + "'";
-            throw new ResourceConflictException(errorMessage);
+    private BatchItemResultDTO addPersonPetInOwnTransaction(int index, Long personId, Long petId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> addPersonPet(personId, petId));
+            return BatchItemResultDTO.created(index, petId);
+        } catch(ResourceConflictException e) {
+            return BatchItemResultDTO.conflict(index, petId, e.getMessage());
+        } catch(ResourceInternalException e) {
+            return BatchItemResultDTO.error(index, petId, e.getMessage());
         }
+    }
 
-        Optional<Person> person = personRepository.findById(personId);
+    /**
+     * Unlinks many pets from the person, in chunks of 'pepe.batch.size' pets, each chunk in its own transaction.
+     * Existing links are looked up with one query per chunk and deleted with one statement per chunk.
+     * Pets which are not linked to the person, or are listed more than once, are reported as conflicts.
+     * Must not be called within an existing transaction.
+     *
+     * @return result per pet, in the same order as the given pet ids
+     */
+    public List<BatchItemResultDTO> removePersonPets(Long personId, List<Long> petIds) {
+        logger.debug("try remove {} PersonPets: personId {}", petIds.size(), personId);
+
+        BatchItemResultDTO[] results = new BatchItemResultDTO[petIds.size()];
+        processInChunks(petIds, results, chunkIndexes -> removePersonPetsChunk(personId, petIds, chunkIndexes, results));
+        return Arrays.asList(results);
+    }
 
-        if (person.isEmpty()) {
-            String errorMessage = "Person with id '" + personId + "' does not exist";
-            logger.error("error {}", errorMessage);
+    private void removePersonPetsChunk(Long personId, List<Long> petIds, List<Integer> chunkIndexes,
+                                       BatchItemResultDTO[] results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> chunkPetIds = chunkIndexes.stream().map(petIds::get).toList();
 
-            throw new ResourceConflictException(errorMessage);
+                Set<Long> linkedPetIds = new HashSet<>(
+                        personPetRepository.findPetIdsByPersonIdAndPetIdIn(personId, chunkPetIds));
+
+                for (Integer index : chunkIndexes) {
+                    Long petId = petIds.get(index);
+
+                    results[index] = linkedPetIds.contains(petId) ?
+                            BatchItemResultDTO.deleted(index, petId) :
+                            BatchItemResultDTO.conflict(index, petId,
+                                    "Person with id '" + personId + "' does not have Pet with id '" + petId + "'");
+                }
+
+                logger.debug("delete {} PersonPets in batch: personId {}", linkedPetIds.size(), personId);
+                personPetRepository.deleteAllByIdInBatch(linkedPetIds);
+            });
+
+            evictPersonPetsFromSecondLevelCache(personId);
+        } catch(Exception e) {
+            logger.error("General exception when trying to remove batch of {} pets from the person with Id {}" +
+                    "\nexception:{}", chunkIndexes.size(), personId, e.getMessage());
+
+            for (Integer index : chunkIndexes) {
+                results[index] = BatchItemResultDTO.error(index, petIds.get(index), "Could not remove pet with Id "
+                        + petIds.get(index) + " from the person with Id " + personId + ", unexpected error");
+            }
         }
+    }
 
-        Optional<Pet> pet = petRepository.findById(petId);
+    /**
+     * Link/unlink writes PersonPet rows directly instead of going through Person.personPets,
+     * so hibernate doesn't know the cached collection of the person is stale. Called after commit,
+     * so a concurrent load can't put the old collection back into the cache. No-op if L2 cache is disabled.
+     */
+    private void evictPersonPetsFromSecondLevelCache(Long personId) {
+        entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache()
+                .evictCollectionData(Person.PERSON_PETS_ROLE, personId);
+    }
 
-        if (pet.isEmpty()) {
-            String errorMessage = "Pet with id '" + petId + "' does not exist";
-            logger.error("error {}", errorMessage);
+    /**
+     * Same as {@link #evictPersonPetsFromSecondLevelCache(Long)}, for links written within the current transaction.
+     */
+    private void evictPersonPetsFromSecondLevelCacheAfterCommit(Long personId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictPersonPetsFromSecondLevelCache(personId);
+            }
+        });
+    }
 
-            throw new ResourceConflictException(errorMessage);
+    /**
+     * Splits pet ids into chunks of 'pepe.batch.size' indexes, reporting repeated pet ids as conflicts.
+     */
+    private void processInChunks(List<Long> petIds, BatchItemResultDTO[] results,
+                                 Consumer<List<Integer>> chunkProcessor) {
+        Set<Long> petIdsInRequest = new HashSet<>();
+        List<Integer> chunkIndexes = new ArrayList<>(batchSize);
+
+        for (int index = 0; index < petIds.size(); index++) {
+            Long petId = petIds.get(index);
+
+            if (!petIdsInRequest.add(petId)) {
+                results[index] = BatchItemResultDTO.conflict(index, petId,
+                        "Pet with id '" + petId + "' is listed more than once");
+                continue;
+            }
+
+            chunkIndexes.add(index);
+
+            if (chunkIndexes.size() == batchSize) {
+                chunkProcessor.accept(chunkIndexes);
+                chunkIndexes = new ArrayList<>(batchSize);
+            }
         }
 
-        PersonPet personPet = person.get().removePet(pet.get());
+        if (!chunkIndexes.isEmpty()) {
+            chunkProcessor.accept(chunkIndexes);
+        }
+    }
 
-        try {
-            logger.info("save Person {} with unlinked pet {}", person.get(), pet.get());
+    /**
+     * Unlinks the pet from the person with a single delete, neither the person, the pet nor the person's other
+     * links are loaded, so the cost doesn't depend on the number of the person's pets. Missing link
+     * (also missing person or pet) is detected by no deleted row.
+     */
+    @Transactional
+    public void removePersonPet(Long personId, Long petId) {
+        int deletedCount;
 
-            personRepository.saveAndFlush(person.get());
-        } catch(org.springframework.dao.DataIntegrityViolationException e) {
-            logger.error("""
-                    DataIntegrityViolationException exception when trying to delete personPet:
-                    {}
-                    exception:{}""", personPet, e.getMessage());
+        try {
+            logger.info("delete PersonPet: personId {}, petId {}", personId, petId);
 
-            // TODO: implement analysis into the exact cause of DataIntegrityViolationException exception
-            String errorMessage = "Could not delete personPet {}" + personPet + ", db error";
-            throw new ResourceConflictException(errorMessage);
+            deletedCount = personPetRepository.deleteByPersonIdAndPetId(personId, petId);
         } catch(Exception e) {
             logger.error("""
-                    General exception when trying to delete personPet:
-                    {}
-                    exception:{}""", personPet, e.getMessage());
+                    General exception when trying to delete personPet: personId {}, petId {}
+                    exception:{}""", personId, petId, e.getMessage());
 
-            String errorMessage = "Could not delete personPet '"
-                    + personPet + "', unexpected error";
+            String errorMessage = "Could not remove pet with Id " + petId +
+                    " from the person with Id " + personId + ", unexpected error";
             throw new ResourceInternalException(errorMessage);
         }
-    }
 
+        if (deletedCount == 0) {
+            String errorMessage = "Person with id '" + personId + "' does not have Pet with id '" + petId + "'";
+            throw new ResourceConflictException(errorMessage);
+        }
 
-    @Transactional
+        evictPersonPetsFromSecondLevelCacheAfterCommit(personId);
+    }
+
+    @Transactional(readOnly = true)
     public PetsDTO retrieveAllPersonPets(Long personId) {
         PetsDTO petsDTO;
 
         try {
-            List<PersonPet> personPets = personPetRepository.findByPersonId(personId);
-
-            new ArrayList<>();
-            List<Long> petIDs = personPets.stream()
-                    .map(personPet -> personPet.getPetId())
-                    .collect(Collectors.toList());
+            long[] petIDs = personPetRepository.findPetIdArrayByPersonId(personId);
 
             logger.debug("retrieveAllPersonPets for personId {} - found following petIds:\n{}", personId, petIDs);
             petsDTO = new PetsDTO(petIDs);
@@ -167,4 +365,47 @@ public class PersonPetService {
 
         return petsDTO;
     }
+
+    /**
+     * Owner of the pet, looked up by the person_pet primary key. The pet itself is read only if it has no owner,
+     * to tell unowned pets from missing ones.
+     */
+    @Transactional(readOnly = true)
+    public PetOwnerDTO retrievePetOwner(Long petId) {
+        List<PetOwner> petOwners = personPetRepository.findOwnersByPetIdIn(List.of(petId));
+
+        if (!petOwners.isEmpty()) {
+            return new PetOwnerDTO(petId, petOwners.get(0).personId());
+        }
+
+        if (!petRepository.existsById(petId)) {
+            String errorMessage = "Pet with id '" + petId + "' not found";
+            throw new ResourceConflictException(errorMessage);
+        }
+
+        return new PetOwnerDTO(petId, null);
+    }
+
+    /**
+     * Owners of many pets, with one query by the person_pet primary key.
+     *
+     * @return owned pets with their owners, ordered by pet id. Pets without owner and missing pets are not listed
+     */
+    @Transactional(readOnly = true)
+    public List<PetOwnerDTO> retrievePetOwners(Collection<Long> petIds) {
+        try {
+            List<PetOwnerDTO> petOwnerDTOs = personPetRepository.findOwnersByPetIdIn(petIds).stream()
+                    .map(petOwner -> new PetOwnerDTO(petOwner.petId(), petOwner.personId()))
+                    .toList();
+
+            logger.debug("retrievePetOwners for {} pets - found {} owned pets", petIds.size(), petOwnerDTOs.size());
+            return petOwnerDTOs;
+        } catch(Exception e) {
+            logger.error("General exception when trying to retrieve owners of {} pets" +
+                    "\nexception:{}", petIds.size(), e.getMessage());
+
+            String errorMessage = "Could not retrieve pet owners, unexpected error";
+            throw new ResourceInternalException(errorMessage);
+        }
+    }
 }
@@ -1,31 +1,53 @@
 package org.dmship.services;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.dmship.dto.BatchItemResultDTO;
 import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PersonMatchDTO;
 import org.dmship.dto.PersonUpdateDTO;
+import org.dmship.dto.PersonsPageDTO;
+import org.dmship.dto.VersionedDTO;
 import org.dmship.exceptions.*;
 import org.dmship.mapping.PersonMapper;
 import org.dmship.mapping.PersonUpdateMapper;
 import org.dmship.model.*;
+import org.dmship.repository.PersonPetRepository;
 import org.dmship.repository.PersonRepository;
+import org.dmship.util.CursorUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(ServiceMetrics.SERVICE_TIMER)
 public class PersonService {
 
+    public static final String PERSONS_CACHE = "persons";
+
     private static final Logger logger = LoggerFactory.getLogger(PersonService.class);
     private final PersonMapper personMapper;
     private final PersonUpdateMapper personUpdateMapper;
     private final PersonRepository personRepository;
+    private final PersonPetRepository personPetRepository;
+    private final PersonNameIndex personNameIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final IdAllocationLimiter idAllocationLimiter;
+
+    @Value("${pepe.batch.size:500}")
+    private int batchSize;
 
     public Optional<PersonDTO> findById(Long personId) {
         Optional<Person> person = personRepository.findById(personId);
@@ -38,14 +60,21 @@ public class PersonService {
         return Optional.of(personDTO);
     }
 
-    @Transactional
+    /**
+     * Creates the person in its own transaction, or as part of an existing transaction (e.g. a write batch).
+     */
     public Long createPerson(PersonDTO personDTO) {
+        return idAllocationLimiter.execute(() -> transactionTemplate.execute(status -> insertPerson(personDTO)));
+    }
+
+    private Long insertPerson(PersonDTO personDTO) {
         Person person = personMapper.toEntity(personDTO);
 
         try {
             logger.debug("create person before save:\n{}", person);
             person = personRepository.saveAndFlush(person);
             logger.debug("created person:\n{}", person);
+            personNameIndex.putAfterCommit(person.getId(), person.getFirstName(), person.getLastName());
         } catch(org.springframework.dao.DataIntegrityViolationException e) {
             logger.error("DataIntegrityViolationException exception when trying to create person:\n{}" +
                     "\nexception:{}", person, e.getMessage());
@@ -66,8 +95,139 @@ public class PersonService {
         return person.getId();
     }
 
+    /**
+     * Creates persons in chunks of 'pepe.batch.size', each chunk inserted in its own transaction using jdbc batching.
+     * Persons whose name already exists (in db or earlier in the same request) are reported as conflicts
+     * without failing the rest of the chunk. If a chunk still fails (e.g. a concurrent insert of the same name),
+     * its persons are retried one by one to isolate the failing ones.
+     * Must not be called within an existing transaction.
+     *
+     * @return result per person, in the same order as the given persons
+     */
+    public List<BatchItemResultDTO> createPersons(List<PersonDTO> personDTOs) {
+        BatchItemResultDTO[] results = new BatchItemResultDTO[personDTOs.size()];
+        Set<List<String>> namesInRequest = new HashSet<>();
+        List<Integer> chunkIndexes = new ArrayList<>(batchSize);
+
+        for (int index = 0; index < personDTOs.size(); index++) {
+            PersonDTO personDTO = personDTOs.get(index);
+
+            if (!namesInRequest.add(List.of(personDTO.firstName(), personDTO.lastName()))) {
+                results[index] = BatchItemResultDTO.conflict(index,
+                        createSameNameErrorMessage(personDTO.firstName(), personDTO.lastName()));
+                continue;
+            }
+
+            chunkIndexes.add(index);
+
+            if (chunkIndexes.size() == batchSize) {
+                createPersonsChunk(personDTOs, chunkIndexes, results);
+                chunkIndexes.clear();
+            }
+        }
+
+        if (!chunkIndexes.isEmpty()) {
+            createPersonsChunk(personDTOs, chunkIndexes, results);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private void createPersonsChunk(List<PersonDTO> personDTOs, List<Integer> chunkIndexes,
+                                    BatchItemResultDTO[] results) {
+        try {
+            idAllocationLimiter.execute(() -> transactionTemplate.executeWithoutResult(status -> {
+                Set<List<String>> existingNames = findExistingNames(personDTOs, chunkIndexes);
+
+                List<Integer> personIndexes = new ArrayList<>(chunkIndexes.size());
+                List<Person> persons = new ArrayList<>(chunkIndexes.size());
+
+                for (Integer index : chunkIndexes) {
+                    PersonDTO personDTO = personDTOs.get(index);
+
+                    if (existingNames.contains(List.of(personDTO.firstName(), personDTO.lastName()))) {
+                        results[index] = BatchItemResultDTO.conflict(index,
+                                createSameNameErrorMessage(personDTO.firstName(), personDTO.lastName()));
+                    } else {
+                        personIndexes.add(index);
+                        persons.add(personMapper.toEntity(personDTO));
+                    }
+                }
+
+                logger.debug("create {} persons in batch", persons.size());
+                personRepository.saveAll(persons);
+                personRepository.flush();
+
+                for (int i = 0; i < persons.size(); i++) {
+                    Person person = persons.get(i);
+                    results[personIndexes.get(i)] = BatchItemResultDTO.created(personIndexes.get(i), person.getId());
+                    personNameIndex.putAfterCommit(person.getId(), person.getFirstName(), person.getLastName());
+                }
+            }));
+        } catch(DataIntegrityViolationException e) {
+            logger.warn("DataIntegrityViolationException exception when trying to create batch of {} persons, " +
+                    "retrying persons one by one\nexception:{}", chunkIndexes.size(), e.getMessage());
+
+            for (Integer index : chunkIndexes) {
+                results[index] = createPersonInOwnTransaction(index, personDTOs.get(index));
+            }
+        } catch(Exception e) {
+            logger.error("General exception when trying to create batch of {} persons" +
+                    "\nexception:{}", chunkIndexes.size(), e.getMessage());
+
+            for (Integer index : chunkIndexes) {
+                PersonDTO personDTO = personDTOs.get(index);
+                results[index] = BatchItemResultDTO.error(index, "Could not create person with the name '"
+                        + Person.createFullName(personDTO.firstName(), personDTO.lastName()) + "', unexpected error");
+            }
+        }
+    }
+
+    private Set<List<String>> findExistingNames(List<PersonDTO> personDTOs, List<Integer> indexes) {
+        Set<String> firstNames = new HashSet<>();
+        Set<String> lastNames = new HashSet<>();
+
+        for (Integer index : indexes) {
+            firstNames.add(personDTOs.get(index).firstName());
+            lastNames.add(personDTOs.get(index).lastName());
+        }
+
+        return personRepository.findByFirstNameInAndLastNameIn(firstNames, lastNames).stream()
+                .map(person -> List.of(person.getFirstName(), person.getLastName()))
+                .collect(Collectors.toSet());
+    }
+
+    private BatchItemResultDTO createPersonInOwnTransaction(int index, PersonDTO personDTO) {
+        try {
+            Long personId = createPerson(personDTO);
+            return BatchItemResultDTO.created(index, personId);
+        } catch(ResourceConflictException e) {
+            return BatchItemResultDTO.conflict(index, e.getMessage());
+        } catch(ResourceInternalException e) {
+            return BatchItemResultDTO.error(index, e.getMessage());
+        }
+    }
+
+    private static String createSameNameErrorMessage(String firstName, String lastName) {
+        return "Could not create person, another person with the same name '"
+                + Person.createFullName(firstName, lastName) + "' already exists";
+    }
+
     @Transactional
+    @CacheEvict(cacheNames = PERSONS_CACHE, key = "#personId")
     public void updatePerson(Long personId, PersonUpdateDTO personUpdateDTO) {
+        updatePerson(personId, personUpdateDTO, Optional.empty());
+    }
+
+    /**
+     * Updates the person only if its current version is the expected one (if present). The version is checked
+     * again by the update statement itself, so concurrent updates of the same version can't overwrite each other.
+     *
+     * @return new version of the person
+     */
+    @Transactional
+    @CacheEvict(cacheNames = PERSONS_CACHE, key = "#personId")
+    public Long updatePerson(Long personId, PersonUpdateDTO personUpdateDTO, Optional<Long> expectedVersion) {
         Optional<Person> personFound = personRepository.findById(personId);
 
         if (personFound.isEmpty()) {
@@ -77,6 +237,12 @@ public class PersonService {
 
         Person person = personFound.get();
 
+        if (expectedVersion.isPresent() && !expectedVersion.get().equals(person.getVersion())) {
+            String errorMessage = "Could not update person with the id '"
+                    + personId + "', person was modified in the meantime";
+            throw new ResourcePreconditionFailedException(errorMessage);
+        }
+
         try {
             PersonUpdate personUpdate = personUpdateMapper.toEntity(personUpdateDTO);
             person.update(personUpdate);
@@ -84,6 +250,17 @@ public class PersonService {
             logger.debug("update person before save:\n{}", person);
             Person personUpdated = personRepository.saveAndFlush(person);
             logger.debug("update person after save:\n{}", personUpdated);
+            personNameIndex.putAfterCommit(personId, personUpdated.getFirstName(), personUpdated.getLastName());
+
+            return personUpdated.getVersion();
+        } catch(ObjectOptimisticLockingFailureException e) {
+            logger.warn("ObjectOptimisticLockingFailureException exception when trying to update person with id {}" +
+                    "\nexception:{}", personId, e.getMessage());
+
+            String errorMessage = "Could not update person with the id '"
+                    + personId + "', person was modified in the meantime";
+            throw expectedVersion.isPresent() ?
+                    new ResourcePreconditionFailedException(errorMessage) : new ResourceConflictException(errorMessage);
         } catch(org.springframework.dao.DataIntegrityViolationException e) {
             logger.error("DataIntegrityViolationException exception when trying to update person:\n{}" +
                     "\nexception:{}", person, e.getMessage());
@@ -103,6 +280,7 @@ public class PersonService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = PERSONS_CACHE, key = "#personId")
     public void deletePerson(Long personId) {
         Optional<Person> personFound = personRepository.findById(personId);
 
@@ -113,7 +291,12 @@ public class PersonService {
 
         try {
             logger.debug("delete person with id {}", personId);
+            // links are deleted in bulk, so removing the person doesn't delete its pets' links one by one
+            int deletedPersonPetCount = personPetRepository.deleteByPersonId(personId);
+            logger.debug("deleted {} PersonPets of person with id {}", deletedPersonPetCount, personId);
+
             personRepository.deleteById(personId);
+            personNameIndex.removeAfterCommit(personId);
         } catch(org.springframework.dao.DataIntegrityViolationException e) {
             logger.error("DataIntegrityViolationException exception when trying to delete person with id '{}'" +
                     "\nexception:{}", personId, e.getMessage());
@@ -132,9 +315,16 @@ public class PersonService {
         }
     }
 
-    @Transactional
-    public PersonDTO retrievePerson(Long personId) {
-        Optional<Person> personFound = personRepository.findById(personId);
+    /**
+     * Person with its version (entity tag), read by one query and cached as one value,
+     * so cache hits serve both the body and its entity tag without db access.
+     * Concurrent misses share one load (sync). An update's eviction after its commit discards a concurrent load,
+     * so the load doesn't cache the old person afterwards, without waiting for it (see CacheConfig in app).
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = PERSONS_CACHE, key = "#personId", sync = true)
+    public VersionedDTO<PersonDTO> retrievePerson(Long personId) {
+        Optional<PersonView> personFound = personRepository.findViewById(personId);
 
         if (personFound.isEmpty()) {
             String errorMessage = "Person with id '" + personId + "' not found";
@@ -143,7 +333,7 @@ public class PersonService {
 
         try {
             logger.debug("retrieved person with id {}", personId);
-            return personMapper.toDTO(personFound.get());
+            return new VersionedDTO<>(personMapper.toDTO(personFound.get()), personFound.get().version());
         } catch(Exception e) {
             logger.error("General exception when trying to retrieve person with id '{}'" +
                     "\nexception:{}", personId, e.getMessage());
@@ -154,9 +344,28 @@ public class PersonService {
         }
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<PersonDTO> retrievePersons(PersonSearchCriteria personSearchCriteria) {
-        List<PersonDTO> personDTOs;
+        return retrievePersonsPage(personSearchCriteria).persons();
+    }
+
+    @Transactional(readOnly = true)
+    public PersonsPageDTO retrievePersonsPage(PersonSearchCriteria personSearchCriteria) {
+        return retrievePersonsPage(personSearchCriteria, false);
+    }
+
+    /**
+     * Retrieves a single page of persons matching the search criteria, using keyset pagination on person id.
+     * One extra row is fetched to find out whether there is a next page, so the cost of each page
+     * does not depend on how deep the client has paged.
+     * Persons are selected as projections, holding only the columns needed for the DTOs.
+     *
+     * @param includePets if true, ids of the pets of the persons on the page are added to the person DTOs,
+     *                    using one additional query per 'pepe.batch.size' persons
+     */
+    @Transactional(readOnly = true)
+    public PersonsPageDTO retrievePersonsPage(PersonSearchCriteria personSearchCriteria, boolean includePets) {
+        PersonsPageDTO personsPageDTO;
 
         try {
             logger.debug("retrieve persons using search criteria:\n{}", personSearchCriteria);
@@ -164,9 +373,28 @@ public class PersonService {
             Specification<Person> personSpecification =
                     PersonSpecificationBuilder.createPersonSpecification(personSearchCriteria);
 
-            List<Person> persons = personRepository.findAll(personSpecification);
+            Optional<Integer> limit = personSearchCriteria.limit() != null ?
+                    personSearchCriteria.limit() : Optional.empty();
+
+            List<PersonView> persons = personRepository.findViews(personSpecification,
+                    limit.map(limitVal -> limitVal + 1));
 
-            personDTOs = persons.stream().map(person -> personMapper.toDTO(person)).collect(Collectors.toList());
+            String next = null;
+            if (limit.isPresent() && persons.size() > limit.get()) {
+                persons = persons.subList(0, limit.get());
+                next = CursorUtil.encode(persons.get(persons.size() - 1).id());
+            }
+
+            Map<Long, List<Long>> petIdsByPersonId = includePets ? findPetIdsByPersonId(persons) : Map.of();
+
+            List<PersonDTO> personDTOs = persons.stream()
+                    .map(person -> includePets ?
+                            personMapper.toDTO(person).toBuilder()
+                                    .petIds(petIdsByPersonId.getOrDefault(person.id(), List.of()))
+                                    .build() :
+                            personMapper.toDTO(person))
+                    .collect(Collectors.toList());
+            personsPageDTO = new PersonsPageDTO(personDTOs, next);
         } catch(Exception e) {
             logger.error("General exception when trying to retrieve persons using search criteria:\n'{}'" +
                     "\nexception:{}", personSearchCriteria, e.getMessage());
@@ -175,6 +403,32 @@ public class PersonService {
             throw new ResourceInternalException(errorMessage);
         }
 
-        return personDTOs;
+        return personsPageDTO;
+    }
+
+    /**
+     * Type-ahead search of persons by name prefix, tolerating typos, served from {@link PersonNameIndex}
+     * without db access.
+     *
+     * @return at most 'limit' persons, best matches first
+     */
+    public List<PersonMatchDTO> searchPersons(String query, int limit) {
+        return personNameIndex.search(query, limit);
+    }
+
+    private Map<Long, List<Long>> findPetIdsByPersonId(List<PersonView> persons) {
+        Map<Long, List<Long>> petIdsByPersonId = new HashMap<>();
+
+        for (int from = 0; from < persons.size(); from += batchSize) {
+            List<Long> personIds = persons.subList(from, Math.min(from + batchSize, persons.size())).stream()
+                    .map(PersonView::id)
+                    .toList();
+
+            personPetRepository.findOwnersByPersonIdIn(personIds).forEach(petOwner -> petIdsByPersonId
+                    .computeIfAbsent(petOwner.personId(), personId -> new ArrayList<>())
+                    .add(petOwner.petId()));
+        }
+
+        return petIdsByPersonId;
     }
 }
@@ -1,30 +1,52 @@
 package org.dmship.services;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.dmship.dto.BatchItemResultDTO;
 import org.dmship.dto.PetDTO;
+import org.dmship.dto.VersionedDTO;
 import org.dmship.exceptions.ResourceConflictException;
 import org.dmship.exceptions.ResourceInternalException;
+import org.dmship.exceptions.ResourcePreconditionFailedException;
 import org.dmship.mapping.PetMapper;
 import org.dmship.model.Pet;
+import org.dmship.model.PetView;
 import org.dmship.repository.PersonRepository;
 import org.dmship.repository.PetRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Timed(ServiceMetrics.SERVICE_TIMER)
 public class PetService {
 
+    public static final String PETS_CACHE = "pets";
+
     private static final Logger logger = LoggerFactory.getLogger(PetService.class);
     private final PetMapper petMapper;
     private final PetRepository petRepository;
     private final PersonRepository personRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IdAllocationLimiter idAllocationLimiter;
+
+    @Value("${pepe.batch.size:500}")
+    private int batchSize;
 
     public Optional<PetDTO> findById(Long petId) {
         Optional<Pet> pet = petRepository.findById(petId);
@@ -37,8 +59,14 @@ public class PetService {
         return Optional.of(petDTO);
     }
 
-    @Transactional
+    /**
+     * Creates the pet in its own transaction, or as part of an existing transaction (e.g. a write batch).
+     */
     public Long createPet(PetDTO petDTO) {
+        return idAllocationLimiter.execute(() -> transactionTemplate.execute(status -> insertPet(petDTO)));
+    }
+
+    private Long insertPet(PetDTO petDTO) {
         Pet pet = petMapper.toEntity(petDTO);
 
         try {
@@ -65,8 +93,78 @@ public class PetService {
         return pet.getId();
     }
 
+    /**
+     * Creates pets in chunks of 'pepe.batch.size', each chunk inserted in its own transaction using jdbc batching.
+     * If a chunk fails, its pets are retried one by one to isolate the failing ones.
+     * Must not be called within an existing transaction.
+     *
+     * @return result per pet, in the same order as the given pets
+     */
+    public List<BatchItemResultDTO> createPets(List<PetDTO> petDTOs) {
+        BatchItemResultDTO[] results = new BatchItemResultDTO[petDTOs.size()];
+
+        for (int chunkStart = 0; chunkStart < petDTOs.size(); chunkStart += batchSize) {
+            int chunkEnd = Math.min(chunkStart + batchSize, petDTOs.size());
+            createPetsChunk(petDTOs, chunkStart, chunkEnd, results);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private void createPetsChunk(List<PetDTO> petDTOs, int chunkStart, int chunkEnd, BatchItemResultDTO[] results) {
+        try {
+            List<Pet> pets = idAllocationLimiter.execute(() -> transactionTemplate.execute(status -> {
+                List<Pet> petsToCreate = new ArrayList<>(chunkEnd - chunkStart);
+
+                for (int index = chunkStart; index < chunkEnd; index++) {
+                    petsToCreate.add(petMapper.toEntity(petDTOs.get(index)));
+                }
+
+                logger.debug("create {} pets in batch", petsToCreate.size());
+                petRepository.saveAll(petsToCreate);
+                petRepository.flush();
+                return petsToCreate;
+            }));
+
+            for (int index = chunkStart; index < chunkEnd; index++) {
+                results[index] = BatchItemResultDTO.created(index, pets.get(index - chunkStart).getId());
+            }
+        } catch(Exception e) {
+            logger.warn("Exception when trying to create batch of {} pets, retrying pets one by one" +
+                    "\nexception:{}", chunkEnd - chunkStart, e.getMessage());
+
+            for (int index = chunkStart; index < chunkEnd; index++) {
+                results[index] = createPetInOwnTransaction(index, petDTOs.get(index));
+            }
+        }
+    }
+
+    private BatchItemResultDTO createPetInOwnTransaction(int index, PetDTO petDTO) {
+        try {
+            Long petId = createPet(petDTO);
+            return BatchItemResultDTO.created(index, petId);
+        } catch(ResourceConflictException e) {
+            return BatchItemResultDTO.conflict(index, e.getMessage());
+        } catch(ResourceInternalException e) {
+            return BatchItemResultDTO.error(index, e.getMessage());
+        }
+    }
+
     @Transactional
+    @CacheEvict(cacheNames = PETS_CACHE, key = "#petId")
     public void updatePet(Long petId, PetDTO petDTO) {
+        updatePet(petId, petDTO, Optional.empty());
+    }
+
+    /**
+     * Updates the pet only if its current version is the expected one (if present). The version is checked
+     * again by the update statement itself, so concurrent updates of the same version can't overwrite each other.
+     *
+     * @return new version of the pet
+     */
+    @Transactional
+    @CacheEvict(cacheNames = PETS_CACHE, key = "#petId")
+    public Long updatePet(Long petId, PetDTO petDTO, Optional<Long> expectedVersion) {
         Optional<Pet> petFound = petRepository.findById(petId);
 
         if (petFound.isEmpty()) {
@@ -76,6 +174,12 @@ public class PetService {
 
         Pet pet = petFound.get();
 
+        if (expectedVersion.isPresent() && !expectedVersion.get().equals(pet.getVersion())) {
+            String errorMessage = "Could not update pet with the id '"
+                    + petId + "', pet was modified in the meantime";
+            throw new ResourcePreconditionFailedException(errorMessage);
+        }
+
         try {
             Pet petUpdate = petMapper.toEntity(petDTO);
             pet.update(petUpdate);
@@ -83,6 +187,16 @@ public class PetService {
             logger.debug("update pet before save:\n{}", pet);
             Pet petUpdated = petRepository.saveAndFlush(pet);
             logger.debug("update pet after save:\n{}", petUpdated);
+
+            return petUpdated.getVersion();
+        } catch(ObjectOptimisticLockingFailureException e) {
+            logger.warn("ObjectOptimisticLockingFailureException exception when trying to update pet with id {}" +
+                    "\nexception:{}", petId, e.getMessage());
+
+            String errorMessage = "Could not update pet with the id '"
+                    + petId + "', pet was modified in the meantime";
+            throw expectedVersion.isPresent() ?
+                    new ResourcePreconditionFailedException(errorMessage) : new ResourceConflictException(errorMessage);
         } catch(org.springframework.dao.DataIntegrityViolationException e) {
             logger.error("DataIntegrityViolationException exception when trying to update pet:\n{}" +
                     "\nexception:{}", pet, e.getMessage());
@@ -102,6 +216,7 @@ public class PetService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = PETS_CACHE, key = "#petId")
     public void deletePet(Long petId) {
         Optional<Pet> petFound = petRepository.findById(petId);
 
@@ -131,9 +246,16 @@ public class PetService {
         }
     }
 
-    @Transactional
-    public PetDTO retrievePet(Long petId) {
-        Optional<Pet> petFound = petRepository.findById(petId);
+    /**
+     * Pet with its version (entity tag), read by one query and cached as one value,
+     * so cache hits serve both the body and its entity tag without db access.
+     * Concurrent misses share one load (sync). An update's eviction after its commit discards a concurrent load,
+     * so the load doesn't cache the old pet afterwards, without waiting for it (see CacheConfig in app).
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = PETS_CACHE, key = "#petId", sync = true)
+    public VersionedDTO<PetDTO> retrievePet(Long petId) {
+        Optional<PetView> petFound = petRepository.findViewById(petId);
 
         if (petFound.isEmpty()) {
             String errorMessage = "Pet with id '" + petId + "' not found";
@@ -141,10 +263,10 @@ public class PetService {
         }
 
         try {
-            Pet pet = petFound.get();
+            PetView pet = petFound.get();
 
             logger.debug("retrieve pet with id {}", petId);
-            return petMapper.toDTO(pet);
+            return new VersionedDTO<>(petMapper.toDTO(pet), pet.version());
         } catch(org.springframework.dao.DataIntegrityViolationException e) {
             logger.error("DataIntegrityViolationException exception when trying to delete pet with id '{}'" +
                     "\nexception:{}", petId, e.getMessage());
@@ -163,12 +285,12 @@ public class PetService {
         }
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<PetDTO> retrieveAllPets() {
         List<PetDTO> petDTOs;
 
         try {
-            List<Pet> pets = petRepository.findAll();
+            List<PetView> pets = petRepository.findAllViews();
 
             petDTOs = pets.stream().map(pet -> petMapper.toDTO(pet)).collect(Collectors.toList());
         } catch(Exception e) {
@@ -181,4 +303,22 @@ public class PetService {
 
         return petDTOs;
     }
+
+    /**
+     * Passes all pets, ordered by id, one by one to the given consumer.
+     * Pets are read from db in fixed size chunks as projections, which are not kept by the persistence context,
+     * so memory use does not depend on the number of pets.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllPets(Consumer<PetDTO> petConsumer) {
+        try (Stream<PetView> pets = petRepository.streamAllViews()) {
+            pets.forEach(pet -> petConsumer.accept(petMapper.toDTO(pet)));
+        } catch(Exception e) {
+            logger.error("General exception when trying to stream all pets" +
+                    "\nexception:{}", e.getMessage());
+
+            String errorMessage = "Could not stream pets, unexpected error";
+            throw new ResourceInternalException(errorMessage);
+        }
+    }
 }
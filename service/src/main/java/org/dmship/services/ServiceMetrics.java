@@ -0,0 +1,19 @@
+package org.dmship.services;
+
+/**
+ * Names of the metrics recorded for the services.
+ */
+public final class ServiceMetrics {
+
+    /** Timer of every public service method, tagged by 'class', 'method' and 'exception'. */
+    public static final String SERVICE_TIMER = "pepe.service";
+
+    /** Counter of service exceptions returned to clients, tagged by 'exception' and 'status'. */
+    public static final String EXCEPTIONS_COUNTER = "pepe.service.exceptions";
+
+    /** Distribution of the number of writes committed together by {@link WriteBatcher}. */
+    public static final String WRITE_BATCH_SIZE = "pepe.write.batch.size";
+
+    private ServiceMetrics() {
+    }
+}
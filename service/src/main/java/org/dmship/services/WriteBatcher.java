@@ -0,0 +1,304 @@
+package org.dmship.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.dmship.exceptions.ResourceInternalException;
+import org.dmship.exceptions.ResourceUnavailableException;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Group commit of single item writes, opt-in by 'pepe.write-batching.enabled'.
+ * Writes submitted concurrently are collected for up to 'pepe.write-batching.max-delay-ms', or until
+ * 'pepe.write-batching.max-items' writes are collected, and executed one after another in a single transaction,
+ * so they share one commit. Each caller waits until its batch is committed and gets its own result (or exception).
+ * Each write of a batch runs in a savepoint (nested transaction), so a failing write is rolled back alone and
+ * the others are still committed together. Hibernate marks the whole transaction rollback-only when a write's
+ * flush or transactional scope fails (e.g. person with the same name), the batch is then rolled back and executed
+ * again without the failing write. If the batch fails otherwise (e.g. its commit), its writes are retried one by
+ * one, each in its own transaction.
+ * A caller waits for at most 'pepe.write-batching.timeout-ms', the outcome of its write is unknown then.
+ * It fails right away if the batcher isn't running (e.g. the application is shutting down).
+ * Caches evicted by writes (e.g. @CacheEvict) must be transaction-aware (e.g. TransactionAwareCacheManagerProxy),
+ * so that they are evicted after the batch is committed, not when the write returns.
+ * Context of the caller's thread is propagated to the write by {@link WriteDecorator}, if there is one.
+ * Batch transactions may insert persons/pets, so they are limited by {@link IdAllocationLimiter}.
+ * If disabled, writes are executed directly by the caller.
+ */
+@Service
+public class WriteBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBatcher.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final IdAllocationLimiter idAllocationLimiter;
+    private final DistributionSummary batchSizes;
+    private final WriteDecorator writeDecorator;
+    private final BlockingQueue<PendingWrite<?>> pendingWrites = new LinkedBlockingQueue<>();
+
+    private final boolean enabled;
+    private final long maxDelayNanos;
+    private final int maxItems;
+    private final long timeoutMillis;
+
+    private volatile boolean running;
+    private Thread committer;
+
+    public WriteBatcher(TransactionTemplate transactionTemplate,
+                        EntityManager entityManager,
+                        IdAllocationLimiter idAllocationLimiter,
+                        ObjectProvider<MeterRegistry> meterRegistry,
+                        ObjectProvider<WriteDecorator> writeDecorator,
+                        @Value("${pepe.write-batching.enabled:false}") boolean enabled,
+                        @Value("${pepe.write-batching.max-delay-ms:2}") long maxDelayMillis,
+                        @Value("${pepe.write-batching.max-items:50}") int maxItems,
+                        @Value("${pepe.write-batching.timeout-ms:10000}") long timeoutMillis) {
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.idAllocationLimiter = idAllocationLimiter;
+        this.batchSizes = meterRegistry.getIfAvailable(SimpleMeterRegistry::new)
+                .summary(ServiceMetrics.WRITE_BATCH_SIZE);
+        this.writeDecorator = writeDecorator.getIfAvailable(() -> write -> write);
+        this.enabled = enabled;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxItems = maxItems;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            committer = Thread.ofPlatform().name("write-batcher").daemon().start(this::commitBatches);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+
+        if (committer != null) {
+            committer.interrupt();
+        }
+    }
+
+    /**
+     * Executes the write as part of the next batch and waits until the batch is committed.
+     * Must not be called within an existing transaction, the write would not be part of it.
+     * If the batch isn't committed within the timeout, the write is dropped if it's still waiting for its batch,
+     * otherwise it may still be committed after the caller failed.
+     *
+     * @return result of the write
+     * @throws IllegalStateException if called within a transaction
+     * @throws ResourceInternalException if the batcher isn't running
+     * @throws ResourceUnavailableException if the batch isn't committed within the timeout
+     */
+    public <R> R execute(Supplier<R> write) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Write batcher must not be called within a transaction");
+        }
+
+        if (!enabled) {
+            return write.get();
+        }
+
+        if (!running || !committer.isAlive()) {
+            throw new ResourceInternalException("Could not execute write, write batcher is not running");
+        }
+
+        PendingWrite<R> pendingWrite = new PendingWrite<>(write, writeDecorator);
+        pendingWrites.add(pendingWrite);
+
+        // stopped while adding, the committer may have drained the queue already
+        if (!running && pendingWrites.remove(pendingWrite)) {
+            throw new ResourceInternalException("Could not execute write, write batcher is not running");
+        }
+
+        try {
+            return pendingWrite.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch(ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new ResourceInternalException("Could not execute write: " + e.getCause());
+        } catch(TimeoutException e) {
+            boolean dropped = pendingWrites.remove(pendingWrite);
+            throw new ResourceUnavailableException("Could not execute write within " + timeoutMillis + " ms, "
+                    + (dropped ? "it was not executed" : "its outcome is unknown, it may still be committed"),
+                    Math.max(TimeUnit.MILLISECONDS.toSeconds(timeoutMillis), 1));
+        } catch(InterruptedException e) {
+            pendingWrites.remove(pendingWrite);
+            Thread.currentThread().interrupt();
+            throw new ResourceInternalException("Could not execute write, interrupted while waiting for its batch");
+        }
+    }
+
+    public void execute(Runnable write) {
+        execute(() -> {
+            write.run();
+            return null;
+        });
+    }
+
+    private void commitBatches() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxItems);
+
+        try {
+            while (true) {
+                batch.add(pendingWrites.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+
+                while (batch.size() < maxItems) {
+                    PendingWrite<?> pendingWrite = pendingWrites.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+                    if (pendingWrite == null) {
+                        break;
+                    }
+
+                    batch.add(pendingWrite);
+                }
+
+                try {
+                    commitBatch(batch);
+                } catch(Throwable e) {
+                    // commitBatch fails each write it can't commit, this only fails writes left uncompleted
+                    logger.error("Exception when committing batch of {} writes", batch.size(), e);
+                    batch.forEach(pendingWrite -> pendingWrite.fail(e));
+                }
+                batch.clear();
+            }
+        } catch(InterruptedException e) {
+            running = false;
+            pendingWrites.drainTo(batch);
+            batch.forEach(pendingWrite -> pendingWrite.fail(
+                    new ResourceInternalException("Could not execute write, application is shutting down")));
+        }
+    }
+
+    private void commitBatch(List<PendingWrite<?>> batch) {
+        batchSizes.record(batch.size());
+        List<PendingWrite<?>> writes = new ArrayList<>(batch);
+
+        while (writes.size() > 1) {
+            try {
+                logger.debug("commit batch of {} writes", writes.size());
+                idAllocationLimiter.execute(() ->
+                        transactionTemplate.executeWithoutResult(status -> writeInSavepoints(writes, status)));
+
+                writes.forEach(PendingWrite::complete);
+                return;
+            } catch(BatchRollbackException e) {
+                logger.debug("write rolled back batch of {} writes, retrying batch without it", writes.size());
+                writes.remove(e.pendingWrite);
+                e.pendingWrite.fail(e.getCause());
+            } catch(Throwable e) {
+                logger.warn("Exception when trying to commit batch of {} writes, retrying writes one by one" +
+                        "\nexception:{}", writes.size(), e.getMessage());
+                break;
+            }
+        }
+
+        for (PendingWrite<?> pendingWrite : writes) {
+            try {
+                idAllocationLimiter.execute(() -> transactionTemplate.executeWithoutResult(status -> pendingWrite.write()));
+                pendingWrite.complete();
+            } catch(Throwable e) {
+                pendingWrite.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Executes each write in a savepoint and flushes it before the next one, so a failing write only rolls back
+     * its own changes. Failed writes are failed and removed from the given writes.
+     * Savepoints are set on the jdbc connection, the jpa transaction manager doesn't support them with hibernate.
+     *
+     * @throws BatchRollbackException if a failing write marked the transaction rollback-only
+     */
+    private void writeInSavepoints(List<PendingWrite<?>> writes, TransactionStatus status) {
+        Session session = entityManager.unwrap(Session.class);
+        Iterator<PendingWrite<?>> iterator = writes.iterator();
+
+        while (iterator.hasNext()) {
+            PendingWrite<?> pendingWrite = iterator.next();
+            Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+
+            try {
+                pendingWrite.write();
+                session.flush();
+                session.doWork(connection -> connection.releaseSavepoint(savepoint));
+            } catch(Throwable e) {
+                if (status.isRollbackOnly()) {
+                    throw new BatchRollbackException(pendingWrite, e);
+                }
+
+                // changes of the other writes are flushed, only those of the failed write are discarded
+                session.doWork(connection -> connection.rollback(savepoint));
+                session.clear();
+                iterator.remove();
+                pendingWrite.fail(e);
+            }
+        }
+    }
+
+    private static final class BatchRollbackException extends RuntimeException {
+
+        private final PendingWrite<?> pendingWrite;
+
+        private BatchRollbackException(PendingWrite<?> pendingWrite, Throwable cause) {
+            super(cause);
+            this.pendingWrite = pendingWrite;
+        }
+    }
+
+    private static final class PendingWrite<R> {
+
+        private final Runnable write;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private R writeResult;
+
+        private PendingWrite(Supplier<R> write, WriteDecorator writeDecorator) {
+            this.write = writeDecorator.decorate(() -> writeResult = write.get());
+        }
+
+        void write() {
+            write.run();
+        }
+
+        void complete() {
+            result.complete(writeResult);
+        }
+
+        void fail(Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.dmship.services;
+
+/**
+ * Propagates context of the thread submitting a write to {@link WriteBatcher} (e.g. the statement counts of
+ * its http request) to the write batcher thread executing it, like Spring's TaskDecorator does for executors.
+ */
+@FunctionalInterface
+public interface WriteDecorator {
+
+    /**
+     * Called on the submitting thread.
+     *
+     * @return the write to execute on the write batcher thread
+     */
+    Runnable decorate(Runnable write);
+}
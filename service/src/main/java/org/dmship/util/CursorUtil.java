@@ -0,0 +1,33 @@
+package org.dmship.util;
+
+import org.dmship.exceptions.ResourceBadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/** Encodes and decodes opaque keyset pagination cursors.
+ * Clients should treat the cursor as an opaque token, the format may change without notice.
+ */
+public class CursorUtil {
+
+    private static final String PREFIX = "id:";
+
+    public static String encode(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("unknown cursor format");
+            }
+
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch(IllegalArgumentException e) {
+            throw new ResourceBadRequestException("Invalid cursor '" + cursor + "'");
+        }
+    }
+}
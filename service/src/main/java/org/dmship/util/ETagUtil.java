@@ -0,0 +1,43 @@
+package org.dmship.util;
+
+import java.util.Optional;
+
+/** Converts entity versions to strong entity tags and back.
+ * A resource's entity tag changes whenever the resource is modified, clients should treat it as an opaque token.
+ */
+public class ETagUtil {
+
+    /** Matches any current version of an existing resource. */
+    public static final String ANY = "*";
+
+    /** Version which never matches, for entity tags not issued by {@link #toETag(Long)}. */
+    public static final Long NO_VERSION = -1L;
+
+    private static final String QUOTE = "\"";
+
+    public static String toETag(Long version) {
+        return QUOTE + version + QUOTE;
+    }
+
+    /**
+     * Version required by 'If-Match' header value. Empty if any version matches ({@link #ANY}),
+     * {@link #NO_VERSION} if the value is not a single strong entity tag issued by {@link #toETag(Long)}.
+     */
+    public static Optional<Long> toVersion(String ifMatch) {
+        String eTag = ifMatch.trim();
+
+        if (ANY.equals(eTag)) {
+            return Optional.empty();
+        }
+
+        if (eTag.length() < 3 || !eTag.startsWith(QUOTE) || !eTag.endsWith(QUOTE)) {
+            return Optional.of(NO_VERSION);
+        }
+
+        try {
+            return Optional.of(Long.parseLong(eTag.substring(1, eTag.length() - 1)));
+        } catch(NumberFormatException e) {
+            return Optional.of(NO_VERSION);
+        }
+    }
+}
@@ -2,13 +2,33 @@ package org.dmship.util;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.io.IOException;
 
+/**
+ * Jackson configuration shared by object mappers of all formats the API is served in
+ * (JSON, and binary CBOR and Smile for internal clients).
+ */
 public class JsonUtil {
+
+    /** Smile media type, Spring's MediaType has a constant for CBOR only. */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    // thread-safe once configured, building a mapper per call (re)builds its serializers each time
+    private static final ObjectMapper NON_NULL_MAPPER = configure(new ObjectMapper())
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    /**
+     * Configures the mapper of any format (e.g. CBORMapper, SmileMapper) the same way as the JSON one,
+     * so that all formats carry the same fields and values.
+     */
+    public static <M extends ObjectMapper> M configure(M mapper) {
+        mapper.registerModule(new JavaTimeModule());
+        return mapper;
+    }
+
     public static byte[] toJson(Object object) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        return mapper.writeValueAsBytes(object);
+        return NON_NULL_MAPPER.writeValueAsBytes(object);
     }
 }
@@ -0,0 +1,35 @@
+package org.dmship.util;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/** Exposes primitive long arrays as lists, without boxing all values upfront. */
+public class LongArrayUtil {
+
+    /**
+     * @return unmodifiable list backed by the given array, its values are boxed only when read
+     */
+    public static List<Long> asList(long[] values) {
+        return new LongArrayList(values);
+    }
+
+    private static class LongArrayList extends AbstractList<Long> implements RandomAccess {
+
+        private final long[] values;
+
+        LongArrayList(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.dmship.services;
+
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.model.Person;
+import org.dmship.model.Pet;
+import org.dmship.util.DbResetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a single pool connection, held by the inserting transaction
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.datasource.hikari.connection-timeout=250"})
+class IdAllocationTest {
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    PersonService personService;
+
+    @Autowired
+    PetService petService;
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("Blocks of person and pet ids are allocated on the connection of the inserting transaction")
+    public void givenSingleConnectionPool_whenCreatingMoreThanIdBlock_thenAllCreated() {
+        //When (actions)
+        long personIds = IntStream.rangeClosed(0, Person.ID_ALLOCATION_SIZE)
+                .mapToObj(i -> personService.createPerson(new PersonDTO("Jan" + i, "Jansen",
+                        LocalDate.of(1980, 6, 18), "Kalverhoeve 41, 3992 NX Houten")))
+                .distinct().count();
+        long petIds = IntStream.rangeClosed(0, Pet.ID_ALLOCATION_SIZE)
+                .mapToObj(i -> petService.createPet(new PetDTO("Caesar" + i, 3)))
+                .distinct().count();
+
+        //Then (postconditions)
+        assertEquals(personIds, Person.ID_ALLOCATION_SIZE + 1L);
+        assertEquals(petIds, Pet.ID_ALLOCATION_SIZE + 1L);
+    }
+}
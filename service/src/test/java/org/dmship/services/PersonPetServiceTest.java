@@ -1,18 +1,25 @@
 package org.dmship.services;
 
+import org.dmship.dto.BatchItemResultDTO;
 import org.dmship.dto.PersonDTO;
 import org.dmship.dto.PetDTO;
 import org.dmship.dto.PetsDTO;
 import org.dmship.exceptions.ResourceConflictException;
+import org.dmship.model.PersonPet;
+import org.dmship.repository.PersonPetRepository;
+import org.dmship.repository.PetRepository;
 import org.dmship.util.DbResetService;
+import org.dmship.util.LongArrayUtil;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -31,6 +38,15 @@ class PersonPetServiceTest {
     @Autowired
     PersonPetService personPetService;
 
+    @Autowired
+    PersonPetRepository personPetRepository;
+
+    @Autowired
+    PetRepository petRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
     @BeforeEach
     void beforeEach() {
         dbResetService.resetDatabase();
@@ -56,9 +72,9 @@ class PersonPetServiceTest {
         PetsDTO petsDTO = personPetService.retrieveAllPersonPets(personId1);
 
         //Then (postconditions)
-        assertEquals(petsDTO.petIds().size(), 2);
-        assertTrue(petsDTO.petIds().contains(petId1));
-        assertTrue(petsDTO.petIds().contains(petId2));
+        assertEquals(petsDTO.petIds().length, 2);
+        assertTrue(LongArrayUtil.asList(petsDTO.petIds()).contains(petId1));
+        assertTrue(LongArrayUtil.asList(petsDTO.petIds()).contains(petId2));
     }
 
     @Test
@@ -84,7 +100,49 @@ class PersonPetServiceTest {
         PetsDTO petsDTO = personPetService.retrieveAllPersonPets(personId1);
 
         //Then (postconditions)
-        assertEquals(petsDTO.petIds().size(), 0);
+        assertEquals(petsDTO.petIds().length, 0);
+    }
+
+    @Test
+    @DisplayName("C1: Link and unlink multiple pets to the owner in one batch, reporting conflicts per pet")
+    public void givenNewPersonAndPets_whenAddingAndRemovingPersonPetsInBatch_thenResultPerPet() {
+        //Given (preconditions)
+        PersonDTO personDTO = new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten");
+        PersonDTO personDTO2 = new PersonDTO("Laura", "Ramos", LocalDate.of(1986, 3, 12),
+                "Tweede Palensteinhof 35, 2804 GP Gouda");
+
+        Long personId1 = personService.createPerson(personDTO);
+        Long personId2 = personService.createPerson(personDTO2);
+        Long petId1 = petService.createPet(new PetDTO("Caesar", 3));
+        Long petId2 = petService.createPet(new PetDTO("Jackie", 5));
+        Long petId3 = petService.createPet(new PetDTO("Rex", 7));
+        Long petIdNonexisting = petId3 + 1000;
+
+        personPetService.addPersonPet(personId2, petId3);
+
+        //When (actions)
+        List<BatchItemResultDTO> addResults = personPetService.addPersonPets(personId1,
+                List.of(petId1, petId2, petId1, petId3, petIdNonexisting));
+        PetsDTO petsDTOAfterAdd = personPetService.retrieveAllPersonPets(personId1);
+
+        List<BatchItemResultDTO> removeResults = personPetService.removePersonPets(personId1,
+                List.of(petId1, petId3));
+        PetsDTO petsDTOAfterRemove = personPetService.retrieveAllPersonPets(personId1);
+
+        //Then (postconditions)
+        assertEquals(addResults.stream().map(BatchItemResultDTO::status).toList(), List.of(
+                BatchItemResultDTO.Status.CREATED, BatchItemResultDTO.Status.CREATED,
+                BatchItemResultDTO.Status.CONFLICT, BatchItemResultDTO.Status.CONFLICT,
+                BatchItemResultDTO.Status.CONFLICT));
+        assertEquals(addResults.get(4).error(), "Pet with id '" + petIdNonexisting + "' does not exist");
+        assertEquals(petsDTOAfterAdd.petIds().length, 2);
+        assertTrue(LongArrayUtil.asList(petsDTOAfterAdd.petIds()).containsAll(List.of(petId1, petId2)));
+
+        assertEquals(removeResults.stream().map(BatchItemResultDTO::status).toList(), List.of(
+                BatchItemResultDTO.Status.DELETED, BatchItemResultDTO.Status.CONFLICT));
+        assertEquals(petsDTOAfterRemove, new PetsDTO(new long[] {petId2}));
+        assertEquals(personPetService.retrieveAllPersonPets(personId2), new PetsDTO(new long[] {petId3}));
     }
 
     @Test
@@ -109,14 +167,11 @@ class PersonPetServiceTest {
         PetsDTO petsDTO = personPetService.retrieveAllPersonPets(personId1);
 
         //Then (postconditions)
-        assertEquals(petsDTO.petIds().size(), 0);
+        assertEquals(petsDTO.petIds().length, 0);
     }
 
     @Test
     @DisplayName("C1: Can not link the same pet to two different owners")
-    @Disabled("TODO: fix issue with person_pet.pet_id primary key getting ignored by hibernate on inserts." +
-            "Hibernate log:" +
-            "create table person_pet (person_id bigint, pet_id bigint not null, primary key (pet_id))")
     public void givenTwoPersonAndPet_whenAddingPetToTwoOwners_thenErrorNotAllowed() {
         //Given (preconditions)
         PersonDTO personDTO = new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
@@ -132,8 +187,6 @@ class PersonPetServiceTest {
 
         personPetService.addPersonPet(personId1, petId1);
 
-        // TODO: currently test is failing because there is no exception in this call.
-        // Using @UniqueConstraint in PersonPet, or @Column.unique does not help
         ResourceConflictException exception = assertThrows(ResourceConflictException.class,
                 () -> personPetService.addPersonPet(personId2, petId1));
 
@@ -141,12 +194,84 @@ class PersonPetServiceTest {
         PetsDTO petsDTO2 = personPetService.retrieveAllPersonPets(personId2);
 
         //Then (postconditions)
-        String errorMessage = "Could not add pet with Id " + petId1 +
-                " to the person with Id " + personId2 + ", db error";
+        String errorMessage = "Pet with id '" + petId1 + "' is already linked to another person";
         assertEquals(exception.getMessage(), errorMessage);
 
-        assertEquals(petsDTO.petIds().size(), 1);
-        assertTrue(petsDTO.petIds().contains(petId1));
-        assertEquals(petsDTO2.petIds().size(), 0);
+        assertEquals(petsDTO.petIds().length, 1);
+        assertTrue(LongArrayUtil.asList(petsDTO.petIds()).contains(petId1));
+        assertEquals(petsDTO2.petIds().length, 0);
+    }
+
+    @Test
+    @DisplayName("C1: Can not link missing pet, link pet to missing owner or link the same pet twice")
+    public void givenPersonAndPet_whenAddingInvalidPersonPets_thenConflicts() {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        Long petId2 = petService.createPet(new PetDTO("Jackie", 5));
+        Long personIdNonexisting = personId + 1000;
+        Long petIdNonexisting = petId + 1000;
+
+        personPetService.addPersonPet(personId, petId);
+
+        //When (actions)
+        ResourceConflictException missingPetException = assertThrows(ResourceConflictException.class,
+                () -> personPetService.addPersonPet(personId, petIdNonexisting));
+        ResourceConflictException missingPersonException = assertThrows(ResourceConflictException.class,
+                () -> personPetService.addPersonPet(personIdNonexisting, petId2));
+        ResourceConflictException linkedPetException = assertThrows(ResourceConflictException.class,
+                () -> personPetService.addPersonPet(personId, petId));
+
+        //Then (postconditions)
+        assertEquals(missingPetException.getMessage(), "Pet with id '" + petIdNonexisting + "' does not exist");
+        assertEquals(missingPersonException.getMessage(), "Person with id '" + personIdNonexisting + "' does not exist");
+        assertEquals(linkedPetException.getMessage(),
+                "Person with id '" + personId + "' already has Pet with id '" + petId + "'");
+        assertEquals(LongArrayUtil.asList(personPetService.retrieveAllPersonPets(personId).petIds()),
+                List.of(petId));
+    }
+
+    @Test
+    @DisplayName("C1: Person's pet ids are retrieved in ascending order, without loading the pets")
+    public void givenPersonWithPets_whenRetrievingPersonPets_thenPetIdsRetrievedWithoutPets() {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+        Long petId2 = petService.createPet(new PetDTO("Jackie", 5));
+
+        personPetService.addPersonPet(personId, petId2);
+        personPetService.addPersonPet(personId, petId);
+
+        //When (actions)
+        PetsDTO petsDTO = personPetService.retrieveAllPersonPets(personId);
+        List<Boolean> petsLoaded = transactionTemplate.execute(status -> personPetRepository.findAll()
+                .stream()
+                .map(PersonPet::getPet)
+                .map(Hibernate::isInitialized)
+                .toList());
+
+        //Then (postconditions)
+        assertEquals(LongArrayUtil.asList(petsDTO.petIds()), List.of(petId, petId2));
+        assertEquals(petsLoaded, List.of(false, false));
+    }
+
+    @Test
+    @DisplayName("C1: Person's pet ids read within a transaction include its links not flushed yet")
+    public void givenUnflushedPersonPet_whenReadingPetIdsInSameTransaction_thenLinkFlushedAndRead() {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        Long petId = petService.createPet(new PetDTO("Caesar", 3));
+
+        //When (actions)
+        long[] petIds = transactionTemplate.execute(status -> {
+            personPetRepository.save(new PersonPet(petId, personId, petRepository.getReferenceById(petId)));
+            return personPetRepository.findPetIdArrayByPersonId(personId);
+        });
+
+        //Then (postconditions)
+        assertEquals(LongArrayUtil.asList(petIds), List.of(petId));
     }
-}
\ No newline at end of file
+}
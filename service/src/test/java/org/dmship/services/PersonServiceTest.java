@@ -1,7 +1,11 @@
 package org.dmship.services;
 
+import org.dmship.dto.BatchItemResultDTO;
+import org.dmship.dto.PersonMatchDTO;
 import org.dmship.dto.PersonUpdateDTO;
+import org.dmship.dto.PersonsPageDTO;
 import org.dmship.model.Person;
+import org.dmship.util.CursorUtil;
 import org.dmship.util.DbResetService;
 import org.dmship.dto.PersonDTO;
 import org.dmship.exceptions.ResourceConflictException;
@@ -27,6 +31,9 @@ class PersonServiceTest {
     @Autowired
     PersonService personService;
 
+    @Autowired
+    PersonNameIndex personNameIndex;
+
     @BeforeEach
     void beforeEach() {
         dbResetService.resetDatabase();
@@ -75,6 +82,37 @@ class PersonServiceTest {
         assertEquals(exception.getMessage(), errorMessage);
     }
 
+    @Test
+    @DisplayName("M1: Store multiple persons in one batch, reporting name conflicts per person")
+    public void givenPersonsWithDuplicateNames_whenCreatePersonsInBatch_thenOnlyUniquePersonsCreated() {
+        //Given (preconditions)
+        PersonDTO personDTOExisting = new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten");
+        PersonDTO personDTO = new PersonDTO("Laura", "Ramos", LocalDate.of(1986, 3, 12),
+                "Tweede Palensteinhof 35, 2804 GP Gouda");
+        PersonDTO personDTODuplicate = personDTO.toBuilder().address("Begijnekade 15, 3512 VV Utrecht").build();
+        PersonDTO personDTO2 = new PersonDTO("Fionna", "Jansen", LocalDate.of(1991, 1, 2),
+                "Begijnekade 15, 3512 VV Utrecht");
+
+        //When (actions)
+        personService.createPerson(personDTOExisting);
+
+        List<BatchItemResultDTO> results = personService.createPersons(
+                List.of(personDTOExisting, personDTO, personDTODuplicate, personDTO2));
+
+        //Then (postconditions)
+        assertEquals(results.size(), 4);
+        assertEquals(results.get(0).status(), BatchItemResultDTO.Status.CONFLICT);
+        assertEquals(results.get(0).error(), "Could not create person, another person with the same name '"
+                + Person.createFullName("Jan", "Jansen") + "' already exists");
+        assertEquals(results.get(1).status(), BatchItemResultDTO.Status.CREATED);
+        assertEquals(results.get(2).status(), BatchItemResultDTO.Status.CONFLICT);
+        assertEquals(results.get(3).status(), BatchItemResultDTO.Status.CREATED);
+
+        assertEquals(personService.findById(results.get(1).id()).get(), personDTO);
+        assertEquals(personService.findById(results.get(3).id()).get(), personDTO2);
+    }
+
     @Test
     @DisplayName("M2: Retrieve all stored persons")
     public void givenTwoPersons_whenCreatePersonsAndRetrievePersons_thenAllStoredPersonsRetrieved() {
@@ -99,6 +137,37 @@ class PersonServiceTest {
         assertTrue(personDTOs.contains(personDTO2));
     }
 
+    @Test
+    @DisplayName("M2: Retrieve stored persons using keyset pagination")
+    public void givenThreePersons_whenRetrievePersonsPageByPage_thenAllStoredPersonsRetrievedOnce() {
+        //Given (preconditions)
+        PersonDTO personDTO = new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten");
+        PersonDTO personDTO2 = new PersonDTO("Laura", "Ramos", LocalDate.of(1986, 3, 12),
+                "Tweede Palensteinhof 35, 2804 GP Gouda");
+        PersonDTO personDTO3 = new PersonDTO("Fionna", "Jansen", LocalDate.of(1991, 1, 2),
+                "Begijnekade 15, 3512 VV Utrecht");
+
+        //When (actions)
+        personService.createPerson(personDTO);
+        personService.createPerson(personDTO2);
+        personService.createPerson(personDTO3);
+
+        PersonSearchCriteria firstPageCriteria = PersonSearchCriteria.builder()
+                .limit(Optional.of(2)).build();
+        PersonsPageDTO firstPage = personService.retrievePersonsPage(firstPageCriteria);
+
+        PersonSearchCriteria secondPageCriteria = firstPageCriteria.toBuilder()
+                .afterId(Optional.of(CursorUtil.decode(firstPage.next()))).build();
+        PersonsPageDTO secondPage = personService.retrievePersonsPage(secondPageCriteria);
+
+        //Then (postconditions)
+        assertEquals(firstPage.persons(), List.of(personDTO, personDTO2));
+        assertNotNull(firstPage.next());
+        assertEquals(secondPage.persons(), List.of(personDTO3));
+        assertNull(secondPage.next());
+    }
+
     @Test
     @DisplayName("M4: Update person's address")
     public void givenPersonWithUpdate_whenUpdatePerson_thenAllUpdatesSaved() {
@@ -227,4 +296,53 @@ class PersonServiceTest {
         assertEquals(personDTOs.size(), 1);
         assertTrue(personDTOs.contains(personDTO2));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Persons are found by name prefix, with typos and ignoring accents, best matches first")
+    public void givenPersons_whenSearchingPersonsByName_thenMatchingPersonsRankedAndLimited() {
+        //Given (preconditions)
+        personNameIndex.rebuild();
+        Long janJansenId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        Long pietJansmaId = personService.createPerson(new PersonDTO("Piet", "Jansma", LocalDate.of(1975, 1, 9),
+                "Tweede Palensteinhof 35, 2804 GP Gouda"));
+        Long jannekeId = personService.createPersons(List.of(new PersonDTO("Janneke", "de Vries",
+                LocalDate.of(1990, 2, 1), "Begijnekade 15, 3512 VV Utrecht"))).get(0).id();
+        Long joseId = personService.createPerson(new PersonDTO("José", "Álvarez", LocalDate.of(1985, 7, 4),
+                "Oudegracht 1, 3511 AA Utrecht"));
+
+        //When (actions)
+        List<PersonMatchDTO> prefixMatches = personService.searchPersons("jans", 10);
+        List<PersonMatchDTO> limitedMatches = personService.searchPersons("jans", 2);
+        List<PersonMatchDTO> typoMatches = personService.searchPersons("Jnasen", 10);
+        List<PersonMatchDTO> fullNameMatches = personService.searchPersons("jan jansen", 10);
+        List<PersonMatchDTO> accentMatches = personService.searchPersons("jose alv", 10);
+        List<PersonMatchDTO> noMatches = personService.searchPersons("xyz", 10);
+
+        //Then (postconditions)
+        // prefixes of Jansen and Jansma cover the same part of the word, then Janneke with one typo
+        assertEquals(prefixMatches.stream().map(PersonMatchDTO::id).toList(),
+                List.of(janJansenId, pietJansmaId, jannekeId));
+        assertEquals(limitedMatches.stream().map(PersonMatchDTO::id).toList(), List.of(janJansenId, pietJansmaId));
+        assertEquals(typoMatches.stream().map(PersonMatchDTO::id).toList(), List.of(janJansenId));
+        assertEquals(fullNameMatches.get(0), new PersonMatchDTO(janJansenId, "Jan", "Jansen"));
+        assertEquals(accentMatches, List.of(new PersonMatchDTO(joseId, "José", "Álvarez")));
+        assertEquals(noMatches, List.of());
+    }
+
+    @Test
+    @DisplayName("Deleted persons are no longer found by name search")
+    public void givenSearchablePerson_whenDeletingPerson_thenPersonNotFound() {
+        //Given (preconditions)
+        personNameIndex.rebuild();
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+        assertEquals(personService.searchPersons("jansen", 10).size(), 1);
+
+        //When (actions)
+        personService.deletePerson(personId);
+
+        //Then (postconditions)
+        assertEquals(personService.searchPersons("jansen", 10), List.of());
+    }
+}
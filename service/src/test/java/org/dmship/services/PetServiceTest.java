@@ -1,5 +1,6 @@
 package org.dmship.services;
 
+import org.dmship.dto.BatchItemResultDTO;
 import org.dmship.dto.PetDTO;
 import org.dmship.exceptions.ResourceConflictException;
 import org.dmship.util.DbResetService;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -66,6 +68,23 @@ class PetServiceTest {
         assertEquals(petDTOFound2.age(), petDTO2.age());
     }
 
+    @Test
+    @DisplayName("S2: Store data for multiple pets in one batch")
+    public void givenPets_whenCreatePetsInBatch_thenAllPetsCreated() {
+        //Given (preconditions)
+        PetDTO petDTO = new PetDTO("Caesar", 3);
+        PetDTO petDTO2 = new PetDTO("Jackie", 5);
+
+        //When (actions)
+        List<BatchItemResultDTO> results = petService.createPets(List.of(petDTO, petDTO2));
+
+        //Then (postconditions)
+        assertEquals(results.size(), 2);
+        assertTrue(results.stream().allMatch(BatchItemResultDTO::isSuccess));
+        assertEquals(petService.findById(results.get(0).id()).get(), petDTO);
+        assertEquals(petService.findById(results.get(1).id()).get(), petDTO2);
+    }
+
     @Test
     @DisplayName("S3: Retrieve all stored pets")
     public void givenTwoPets_whenCreatePetsAndRetrievePets_thenAllStoredPetsRetrieved() {
@@ -86,6 +105,24 @@ class PetServiceTest {
         assertTrue(petDTOs.contains(petDTO2));
     }
 
+    @Test
+    @DisplayName("S3: Stream all stored pets")
+    public void givenTwoPets_whenCreatePetsAndStreamPets_thenAllStoredPetsStreamedInIdOrder() {
+        //Given (preconditions)
+        PetDTO petDTO = new PetDTO("Caesar", 3);
+        PetDTO petDTO2 = new PetDTO("Jackie", 5);
+
+        //When (actions)
+        petService.createPet(petDTO);
+        petService.createPet(petDTO2);
+
+        List<PetDTO> petDTOs = new ArrayList<>();
+        petService.streamAllPets(petDTOs::add);
+
+        //Then (postconditions)
+        assertEquals(petDTOs, List.of(petDTO, petDTO2));
+    }
+
     @Test
     @DisplayName("S4: Update pet's data")
     public void givenPetWithUpdate_whenUpdatePet_thenAllUpdatesSaved() {
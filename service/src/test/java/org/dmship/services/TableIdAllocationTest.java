@@ -0,0 +1,101 @@
+package org.dmship.services;
+
+import org.dmship.dto.BatchItemResultDTO;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.util.DbResetService;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.sequence.NoSequenceSupport;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.jdbc.dialect.spi.DialectResolutionInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// h2 without sequences, person/pet id blocks are allocated from tables on a second connection, like on mysql
+@SpringBootTest(properties = {
+        "spring.jpa.database-platform=org.dmship.services.TableIdAllocationTest$NoSequenceH2Dialect",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=1000"})
+class TableIdAllocationTest {
+
+    private static final int INSERTERS = 8;
+
+    private static final int PETS_PER_INSERTER = 100;
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    PersonService personService;
+
+    @Autowired
+    PetService petService;
+
+    public static class NoSequenceH2Dialect extends H2Dialect {
+
+        public NoSequenceH2Dialect(DialectResolutionInfo info) {
+            super(info);
+        }
+
+        @Override
+        public SequenceSupport getSequenceSupport() {
+            return NoSequenceSupport.INSTANCE;
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("Concurrent inserts on all pool connections don't starve id allocation of a connection")
+    public void givenConcurrentInsertersOnSmallPool_whenAllocatingIdBlocks_thenAllCreated() {
+        //Given (preconditions)
+        ExecutorService executor = Executors.newFixedThreadPool(INSERTERS);
+        List<CompletableFuture<List<BatchItemResultDTO>>> petResults = new ArrayList<>();
+        List<CompletableFuture<Long>> personIds = new ArrayList<>();
+
+        //When (actions)
+        try {
+            for (int inserter = 0; inserter < INSERTERS; inserter++) {
+                List<PetDTO> petDTOs = IntStream.range(0, PETS_PER_INSERTER)
+                        .mapToObj(i -> new PetDTO("Caesar" + i, 3))
+                        .toList();
+                PersonDTO personDTO = new PersonDTO("Jan" + inserter, "Jansen", LocalDate.of(1980, 6, 18),
+                        "Kalverhoeve 41, 3992 NX Houten");
+
+                petResults.add(CompletableFuture.supplyAsync(() -> petService.createPets(petDTOs), executor));
+                personIds.add(CompletableFuture.supplyAsync(() -> personService.createPerson(personDTO), executor));
+            }
+
+            CompletableFuture.allOf(petResults.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+            CompletableFuture.allOf(personIds.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //Then (postconditions)
+        List<Long> petIds = petResults.stream()
+                .flatMap(results -> results.join().stream())
+                .peek(result -> assertEquals(result.status(), BatchItemResultDTO.Status.CREATED, result.error()))
+                .map(BatchItemResultDTO::id)
+                .toList();
+
+        assertEquals(petIds.stream().distinct().count(), (long) INSERTERS * PETS_PER_INSERTER);
+        assertEquals(personIds.stream().map(CompletableFuture::join).distinct().count(), (long) INSERTERS);
+    }
+}
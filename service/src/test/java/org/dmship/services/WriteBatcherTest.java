@@ -0,0 +1,294 @@
+package org.dmship.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.dmship.dto.PersonDTO;
+import org.dmship.dto.PetsDTO;
+import org.dmship.dto.PetDTO;
+import org.dmship.exceptions.ResourceConflictException;
+import org.dmship.exceptions.ResourceInternalException;
+import org.dmship.exceptions.ResourceUnavailableException;
+import org.dmship.util.DbResetService;
+import org.dmship.util.LongArrayUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "pepe.write-batching.enabled=true",
+        "pepe.write-batching.max-delay-ms=50",
+        "pepe.write-batching.max-items=50"})
+class WriteBatcherTest {
+
+    private static final int WRITERS = 20;
+
+    @Autowired
+    DbResetService dbResetService;
+
+    @Autowired
+    WriteBatcher writeBatcher;
+
+    @Autowired
+    PersonService personService;
+
+    @Autowired
+    PetService petService;
+
+    @Autowired
+    PersonPetService personPetService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Autowired
+    ObjectProvider<WriteDecorator> writeDecorator;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    IdAllocationLimiter idAllocationLimiter;
+
+    @TestConfiguration
+    static class MeterRegistryConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        dbResetService.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("Concurrent single person creates are committed together, conflicting person fails alone")
+    public void givenConcurrentPersonCreates_whenOneConflicts_thenOthersCreatedInBatches() throws Exception {
+        //Given (preconditions)
+        List<Supplier<Long>> writes = new ArrayList<>();
+
+        for (int i = 0; i < WRITERS; i++) {
+            PersonDTO personDTO = new PersonDTO("Jan" + i, "Jansen", LocalDate.of(1980, 6, 18),
+                    "Kalverhoeve 41, 3992 NX Houten");
+            writes.add(() -> personService.createPerson(personDTO));
+        }
+
+        PersonDTO duplicatePersonDTO = new PersonDTO("Jan0", "Jansen", LocalDate.of(1981, 1, 1), "Houten");
+        writes.add(() -> personService.createPerson(duplicatePersonDTO));
+
+        //When (actions)
+        List<CompletableFuture<Long>> results = executeConcurrently(writes);
+
+        //Then (postconditions)
+        for (int i = 1; i < WRITERS; i++) {
+            Long personId = results.get(i).join();
+            assertEquals(personService.retrievePerson(personId).dto().firstName(), "Jan" + i);
+        }
+
+        // either of the two persons with the same name is created first, the other one conflicts
+        List<CompletableFuture<Long>> sameNameResults = List.of(results.get(0), results.get(WRITERS));
+        assertEquals(sameNameResults.stream().filter(result -> !result.isCompletedExceptionally()).count(), 1L);
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> sameNameResults.stream()
+                .filter(CompletableFuture::isCompletedExceptionally).findFirst().get().join());
+        assertInstanceOf(ResourceConflictException.class, exception.getCause());
+
+        assertTrue(meterRegistry.summary(ServiceMetrics.WRITE_BATCH_SIZE).max() > 1);
+    }
+
+    @Test
+    @DisplayName("Concurrent single pet creates and links are committed together")
+    public void givenConcurrentPetCreatesAndLinks_whenExecuted_thenPetsCreatedAndLinked() throws Exception {
+        //Given (preconditions)
+        Long personId = personService.createPerson(new PersonDTO("Jan", "Jansen", LocalDate.of(1980, 6, 18),
+                "Kalverhoeve 41, 3992 NX Houten"));
+
+        List<Supplier<Long>> writes = new ArrayList<>();
+
+        for (int i = 0; i < WRITERS; i++) {
+            PetDTO petDTO = new PetDTO("Caesar" + i, 3);
+            writes.add(() -> petService.createPet(petDTO));
+        }
+
+        //When (actions)
+        List<Long> petIds = executeConcurrently(writes).stream().map(CompletableFuture::join).toList();
+
+        List<Supplier<Long>> links = petIds.stream()
+                .<Supplier<Long>>map(petId -> () -> {
+                    personPetService.addPersonPet(personId, petId);
+                    return petId;
+                })
+                .toList();
+        executeConcurrently(links).forEach(CompletableFuture::join);
+
+        //Then (postconditions)
+        PetsDTO petsDTO = personPetService.retrieveAllPersonPets(personId);
+        assertEquals(LongArrayUtil.asList(petsDTO.petIds()), petIds.stream().sorted().toList());
+    }
+
+    @Test
+    @DisplayName("Write throwing an error fails alone, the batcher keeps committing")
+    public void givenConcurrentWrites_whenOneThrowsError_thenOnlyItFails() throws Exception {
+        //Given (preconditions)
+        List<Supplier<Long>> writes = new ArrayList<>();
+
+        for (int i = 0; i < WRITERS; i++) {
+            PetDTO petDTO = new PetDTO("Caesar" + i, 3);
+            writes.add(() -> petService.createPet(petDTO));
+        }
+
+        writes.add(() -> {
+            throw new StackOverflowError();
+        });
+
+        //When (actions)
+        List<CompletableFuture<Long>> results = executeConcurrently(writes);
+
+        //Then (postconditions)
+        for (int i = 0; i < WRITERS; i++) {
+            assertEquals(petService.retrievePet(results.get(i).join()).dto().name(), "Caesar" + i);
+        }
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> results.get(WRITERS).join());
+        assertInstanceOf(StackOverflowError.class, exception.getCause());
+
+        Long petId = writeBatcher.execute(() -> petService.createPet(new PetDTO("Nero", 4)));
+        assertEquals(petService.retrievePet(petId).dto().name(), "Nero");
+    }
+
+    @Test
+    @DisplayName("Failing write is rolled back to its savepoint, the other writes of the batch are executed once")
+    public void givenConcurrentWrites_whenOneFailsAfterWriting_thenOnlyItsWriteRolledBack() throws Exception {
+        //Given (preconditions)
+        AtomicInteger executions = new AtomicInteger();
+        List<Supplier<Long>> writes = new ArrayList<>();
+
+        for (int i = 0; i < WRITERS; i++) {
+            PetDTO petDTO = new PetDTO("Caesar" + i, 3);
+            writes.add(() -> {
+                executions.incrementAndGet();
+                return petService.createPet(petDTO);
+            });
+        }
+
+        writes.add(() -> {
+            petService.createPet(new PetDTO("Nero", 4));
+            throw new IllegalStateException("failed after creating pet");
+        });
+
+        //When (actions)
+        List<CompletableFuture<Long>> results = executeConcurrently(writes);
+
+        //Then (postconditions)
+        for (int i = 0; i < WRITERS; i++) {
+            assertEquals(petService.retrievePet(results.get(i).join()).dto().name(), "Caesar" + i);
+        }
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> results.get(WRITERS).join());
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+
+        assertEquals(executions.get(), WRITERS);
+        assertEquals(petService.retrieveAllPets().size(), WRITERS);
+    }
+
+    @Test
+    @DisplayName("Write within a transaction is rejected")
+    public void givenTransaction_whenExecute_thenIllegalState() {
+        //When (actions) //Then (postconditions)
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                writeBatcher.execute(() -> petService.createPet(new PetDTO("Caesar", 3)))));
+    }
+
+    @Test
+    @DisplayName("Write not committed within the timeout fails as retryable, with unknown outcome")
+    public void givenBlockedBatch_whenTimeoutExpires_thenWriteFails() throws Exception {
+        //Given (preconditions)
+        WriteBatcher batcher = new WriteBatcher(transactionTemplate, entityManager, idAllocationLimiter,
+                meterRegistryProvider, writeDecorator, true, 1, 50, 100);
+        batcher.start();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            //When (actions) //Then (postconditions)
+            ResourceUnavailableException exception = assertThrows(ResourceUnavailableException.class,
+                    () -> batcher.execute(() -> {
+                        try {
+                            return release.await(5, TimeUnit.SECONDS);
+                        } catch(InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }));
+            assertTrue(exception.getMessage().contains("outcome is unknown"), exception.getMessage());
+            assertEquals(exception.getRetryAfterSeconds(), 1L);
+        } finally {
+            release.countDown();
+            batcher.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Write after the batcher is stopped fails right away")
+    public void givenStoppedBatcher_whenExecute_thenWriteFails() {
+        //Given (preconditions)
+        WriteBatcher batcher = new WriteBatcher(transactionTemplate, entityManager, idAllocationLimiter,
+                meterRegistryProvider, writeDecorator, true, 1, 50, 10000);
+        batcher.start();
+        batcher.stop();
+
+        //When (actions) //Then (postconditions)
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> assertThrows(ResourceInternalException.class,
+                () -> batcher.execute(() -> petService.createPet(new PetDTO("Caesar", 3)))));
+        assertTrue(petService.retrieveAllPets().isEmpty());
+    }
+
+    private List<CompletableFuture<Long>> executeConcurrently(List<Supplier<Long>> writes) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(writes.size())) {
+            List<CompletableFuture<Long>> results = writes.stream()
+                    .map(write -> CompletableFuture.supplyAsync(() -> {
+                        try {
+                            start.await();
+                        } catch(InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return writeBatcher.execute(write);
+                    }, executor))
+                    .toList();
+
+            start.countDown();
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+            return results;
+        }
+    }
+}